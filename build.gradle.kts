@@ -5,6 +5,7 @@ plugins {
     id("maven-publish")
     id("signing")
     id("com.vanniktech.maven.publish") version "0.30.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "net.goldenstack.trove"
@@ -25,12 +26,30 @@ dependencies {
 
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+
+    jmhImplementation(minestom)
 }
 
 tasks.test {
     useJUnitPlatform()
 }
 
+// Writes a loot table snapshot at build time, e.g. ./gradlew tableSnapshot -Ptables=<directory> -Psnapshot=<file>
+tasks.register<JavaExec>("tableSnapshot") {
+    group = "build"
+    description = "Parses a loot table directory into a snapshot that can be bundled as a resource."
+
+    classpath = sourceSets.main.get().runtimeClasspath + configurations.compileClasspath.get()
+    mainClass.set("net.goldenstack.loot.TableSnapshot")
+
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(
+            providers.gradleProperty("tables").get(),
+            providers.gradleProperty("snapshot").orElse(layout.buildDirectory.file("loot_tables.snapshot").get().asFile.path).get()
+        )
+    })
+}
+
 java {
     toolchain {
         languageVersion.set(JavaLanguageVersion.of(21))
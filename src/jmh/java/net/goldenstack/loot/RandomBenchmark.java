@@ -0,0 +1,53 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.VanillaInterface;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Compares the per-roll cost of the random number generators that can be used as {@link LootContext#RANDOM}.<br>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomBenchmark {
+
+    @Param({"Random", "SplittableRandom", "L64X128MixRandom"})
+    public String generator;
+
+    private final LootNumber uniform = new LootNumber.Uniform(new LootNumber.Constant(1d), new LootNumber.Constant(64d));
+    private final LootNumber binomial = new LootNumber.Binomial(new LootNumber.Constant(16d), new LootNumber.Constant(0.3));
+    private final LootPredicate chance = new LootPredicate.RandomChance(new LootNumber.Constant(0.5));
+
+    private LootContext context;
+
+    @Setup
+    public void setup() {
+        context = LootContext.from(VanillaInterface.defaults(), Map.of(
+                LootContext.RANDOM, RandomGeneratorFactory.of(generator).create(42)
+        ));
+    }
+
+    @Benchmark
+    public int uniform() {
+        return uniform.getInt(context);
+    }
+
+    @Benchmark
+    public int binomial() {
+        return binomial.getInt(context);
+    }
+
+    @Benchmark
+    public boolean chance() {
+        return chance.test(context);
+    }
+
+}
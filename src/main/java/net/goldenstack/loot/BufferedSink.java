@@ -0,0 +1,58 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * A sink that holds on to items until it's flushed, and only then modifies each of them and passes them on.<br>
+ * Pool, table, and nested table functions run once everything they apply to has been generated, rather than on each
+ * item as soon as it's generated. Functions can draw random numbers, so running them any earlier would interleave their
+ * draws with the draws of the remaining rolls and change seeded output.
+ */
+final class BufferedSink implements Consumer<ItemStack> {
+
+    private final @NotNull UnaryOperator<ItemStack> modifier;
+    private final @NotNull Consumer<ItemStack> sink;
+    private final @NotNull List<ItemStack> items = new ArrayList<>();
+
+    /**
+     * Creates a buffer that applies the provided functions before passing items to the provided sink.
+     * @param functions the functions to apply to each item
+     * @param context the context to apply the functions with
+     * @param sink the sink to pass each modified item to
+     */
+    BufferedSink(@NotNull List<LootFunction> functions, @NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        this(item -> LootFunction.apply(functions, item, context), sink);
+    }
+
+    /**
+     * Creates a buffer that applies the provided modifier before passing items to the provided sink.
+     * @param modifier the modifier to apply to each item
+     * @param sink the sink to pass each modified item to
+     */
+    BufferedSink(@NotNull UnaryOperator<ItemStack> modifier, @NotNull Consumer<ItemStack> sink) {
+        this.modifier = modifier;
+        this.sink = sink;
+    }
+
+    @Override
+    public void accept(@NotNull ItemStack item) {
+        items.add(item);
+    }
+
+    /**
+     * Modifies every item received since the last flush, in order, and passes each one to the sink.
+     */
+    void flush() {
+        for (ItemStack item : items) {
+            sink.accept(modifier.apply(item));
+        }
+        items.clear();
+    }
+
+}
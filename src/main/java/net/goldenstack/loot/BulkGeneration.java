@@ -0,0 +1,80 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Generates loot for a range of indices as a fork-join task, splitting the range in half until it's small enough to
+ * generate directly.<br>
+ * Each index gets its own random number generator, seeded from the root seed and the index alone, so the results for
+ * each index are the same no matter how the range was split or how many threads ran it.
+ */
+final class BulkGeneration extends RecursiveAction {
+
+    /**
+     * The largest number of generations that a task runs directly instead of splitting further.
+     */
+    private static final int THRESHOLD = 256;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final @NotNull LootGenerator generator;
+    private final @NotNull LootContext context;
+    private final long seed;
+    private final int from, to;
+    private final @NotNull ObjIntConsumer<ItemStack> sink;
+
+    BulkGeneration(@NotNull LootGenerator generator, @NotNull LootContext context, long seed, int from, int to,
+                   @NotNull ObjIntConsumer<ItemStack> sink) {
+        this.generator = generator;
+        this.context = context;
+        this.seed = seed;
+        this.from = from;
+        this.to = to;
+        this.sink = sink;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from > THRESHOLD) {
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new BulkGeneration(generator, context, seed, from, middle, sink),
+                    new BulkGeneration(generator, context, seed, middle, to, sink)
+            );
+            return;
+        }
+
+        List<LootContext> contexts = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            contexts.add(context.with(LootContext.RANDOM, new SplittableRandom(seed(seed, i))));
+        }
+
+        if (generator instanceof CompiledLootTable compiled) {
+            compiled.generateBatch(contexts, (item, index) -> sink.accept(item, from + index));
+        } else {
+            for (int i = 0; i < contexts.size(); i++) {
+                final int index = from + i;
+                generator.generate(contexts.get(i), item -> sink.accept(item, index));
+            }
+        }
+    }
+
+    /**
+     * Derives the seed of the provided index from the root seed, in the same way that {@link SplittableRandom} derives
+     * the seeds of the generators it splits off.
+     */
+    static long seed(long root, int index) {
+        long z = root + GOLDEN_GAMMA * (index + 1L);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
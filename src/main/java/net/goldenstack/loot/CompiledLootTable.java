@@ -0,0 +1,592 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.Material;
+import net.minestom.server.registry.RegistryKey;
+import net.minestom.server.utils.Either;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A loot table lowered into a flat, array-based evaluation plan.<br>
+ * Every entry in the table becomes a node, identified by its index into a set of parallel arrays. The predicates,
+ * functions, and children of each node are stored as ranges into shared arrays, so generating loot only walks arrays
+ * instead of dispatching through the entry records and allocating lists of choices at every level. Pools whose choices
+ * and weights can never change skip collecting choices entirely, picking from a precomputed distribution instead.<br>
+ * Generation produces exactly the same results as the original table, calling the random number generator in the same
+ * order. The only difference is that the materials of each tag entry are looked up once, when compiling.<br>
+ * If the table has a {@link LootTable#type() type}, contexts are checked for its required parameters once, when
+ * generation starts, and predicates that only check for the presence of required parameters are left out of the plan.
+ * @see LootTable#compile()
+ */
+public final class CompiledLootTable implements LootGenerator {
+
+    // Nodes that can be chosen directly
+    private static final byte ITEM = 0;
+    private static final byte EMPTY = 1;
+    private static final byte TABLE = 2;
+    private static final byte TAG = 3;
+    private static final byte EXPANDED_TAG = 4;
+    private static final byte DELEGATE = 5;
+
+    // Nodes that only provide choices
+    private static final byte ALTERNATIVES = 6;
+    private static final byte GROUP = 7;
+    private static final byte SEQUENCE = 8;
+    private static final byte OPAQUE = 9;
+
+    private final @NotNull LootTable source;
+
+    // Shared arrays that the ranges below point into
+    private final @NotNull LootPredicate @NotNull [] predicates;
+    private final @NotNull LootFunction @NotNull [] functions;
+    private final int @NotNull [] children;
+
+    // Per node; the ranges of node i are [array[i], array[i + 1])
+    private final byte @NotNull [] kinds;
+    private final int @NotNull [] conditions;
+    private final int @NotNull [] modifiers;
+    private final int @NotNull [] branches;
+    private final long @NotNull [] weights;
+    private final long @NotNull [] qualities;
+    private final @Nullable Object @NotNull [] payloads;
+
+    // Per pool
+    private final @NotNull LootNumber @NotNull [] rolls;
+    private final @NotNull LootNumber @NotNull [] bonusRolls;
+    private final @NotNull LootPredicate @NotNull [] @NotNull [] poolConditions;
+    private final @NotNull LootFunction @NotNull [] @NotNull [] poolModifiers;
+    private final int @NotNull [] @NotNull [] poolEntries;
+
+    private final @Nullable Distribution @NotNull [] distributions;
+
+    private final @NotNull LootFunction @NotNull [] tableModifiers;
+
+    /**
+     * Compiles the provided table. Tables that are nested directly inside of it are compiled as well.
+     * @param table the table to compile
+     * @return the compiled table
+     */
+    static @NotNull CompiledLootTable compile(@NotNull LootTable table) {
+        return new Compiler(table.type()).table(table);
+    }
+
+    private CompiledLootTable(@NotNull LootTable source, @NotNull Compiler compiler) {
+        this.source = source;
+
+        this.predicates = compiler.predicates.toArray(LootPredicate[]::new);
+        this.functions = compiler.functions.toArray(LootFunction[]::new);
+        this.children = compiler.children.stream().mapToInt(Integer::intValue).toArray();
+
+        this.kinds = new byte[compiler.kinds.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = compiler.kinds.get(i);
+        }
+        this.conditions = compiler.conditions.stream().mapToInt(Integer::intValue).toArray();
+        this.modifiers = compiler.modifiers.stream().mapToInt(Integer::intValue).toArray();
+        this.branches = compiler.branches.stream().mapToInt(Integer::intValue).toArray();
+        this.weights = compiler.weights.stream().mapToLong(Long::longValue).toArray();
+        this.qualities = compiler.qualities.stream().mapToLong(Long::longValue).toArray();
+        this.payloads = compiler.payloads.toArray();
+
+        List<LootPool> pools = source.pools();
+        this.rolls = pools.stream().map(LootPool::rolls).toArray(LootNumber[]::new);
+        this.bonusRolls = pools.stream().map(LootPool::bonusRolls).toArray(LootNumber[]::new);
+        this.poolConditions = pools.stream().map(pool -> compiler.fold(pool.predicates()).toArray(LootPredicate[]::new)).toArray(LootPredicate[][]::new);
+        this.poolModifiers = pools.stream().map(pool -> pool.functions().toArray(LootFunction[]::new)).toArray(LootFunction[][]::new);
+        this.poolEntries = compiler.poolEntries.toArray(int[][]::new);
+        this.distributions = Arrays.stream(poolEntries).map(this::distribution).toArray(Distribution[]::new);
+
+        this.tableModifiers = source.functions().toArray(LootFunction[]::new);
+    }
+
+    /**
+     * @return the table that this plan was compiled from
+     */
+    public @NotNull LootTable source() {
+        return source;
+    }
+
+    @Override
+    public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
+        return LootGenerator.collect(this, context);
+    }
+
+    @Override
+    public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        validate(context);
+        generate(LootContextImpl.scoped(source.sequenced(context)), new Frame(), sink);
+    }
+
+    /**
+     * Generates loot for each of the provided contexts, collecting the items for each context into its own list. The
+     * results are identical to generating loot for each context one at a time, in order.
+     * @param contexts the contexts to generate loot for
+     * @return the items generated for each context, in the same order as the contexts
+     */
+    public @NotNull List<List<ItemStack>> generateBatch(@NotNull List<LootContext> contexts) {
+        List<List<ItemStack>> results = new ArrayList<>(contexts.size());
+        for (int i = 0; i < contexts.size(); i++) {
+            results.add(new ArrayList<>());
+        }
+
+        generateBatch(contexts, (item, index) -> results.get(index).add(item));
+        return results;
+    }
+
+    /**
+     * Generates loot for each of the provided contexts, passing each item to the provided sink along with the index of
+     * the context it was generated for. The results are identical to generating loot for each context one at a time,
+     * in order, but the scratch space used to pick choices is shared between every context.
+     * @param contexts the contexts to generate loot for
+     * @param sink the consumer to pass each generated item and the index of its context to
+     */
+    public void generateBatch(@NotNull List<LootContext> contexts, @NotNull ObjIntConsumer<ItemStack> sink) {
+        Frame frame = new Frame();
+        for (int i = 0; i < contexts.size(); i++) {
+            final int index = i;
+            validate(contexts.get(i));
+            generate(LootContextImpl.scoped(source.sequenced(contexts.get(i))), frame, item -> sink.accept(item, index));
+        }
+    }
+
+    /**
+     * Makes sure that the provided context has every parameter required by the source table's type, which the plan
+     * relies on.
+     */
+    private void validate(@NotNull LootContext context) {
+        LootContextType type = source.type();
+        if (type != null) type.validate(context);
+    }
+
+    /**
+     * Generates loot into the provided sink, using the provided frame as scratch space.
+     */
+    void generate(@NotNull LootContext context, @NotNull Frame frame, @NotNull Consumer<ItemStack> sink) {
+        // Like the table itself, functions are applied to the items of each pool once that pool is done
+        BufferedSink tableSink = buffered(tableModifiers, 0, tableModifiers.length, sink, context);
+
+        for (int pool = 0; pool < rolls.length; pool++) {
+            generatePool(pool, context, frame, tableSink != null ? tableSink : sink);
+
+            if (tableSink != null) tableSink.flush();
+        }
+    }
+
+    /**
+     * Generates the loot of a single pool into the provided sink, applying the pool's functions once every roll is done.
+     */
+    private void generatePool(int pool, @NotNull LootContext context, @NotNull Frame frame, @NotNull Consumer<ItemStack> sink) {
+        if (!test(poolConditions[pool], 0, poolConditions[pool].length, context)) return;
+
+        int count = rolls[pool].getInt(context);
+
+        Double luck = context.get(LootContext.LUCK);
+        if (luck != null) {
+            count += (int) Math.floor(luck * bonusRolls[pool].getDouble(context));
+        }
+
+        BufferedSink poolSink = buffered(poolModifiers[pool], 0, poolModifiers[pool].length, sink, context);
+        Consumer<ItemStack> target = poolSink != null ? poolSink : sink;
+
+        Distribution distribution = distributions[pool];
+        if (distribution != null) {
+            if (distribution.size() == 0) return;
+
+            for (int i = 0; i < count; i++) {
+                int picked = distribution.pick(context.require(LootContext.RANDOM).nextLong(0, distribution.total()));
+                emit(distribution.nodes()[picked], distribution.indices()[picked], null, context, frame, target);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                frame.size = 0;
+                for (int entry : poolEntries[pool]) {
+                    collect(entry, context, frame);
+                }
+
+                if (frame.size == 0) continue;
+
+                // Read the choice out of the frame first, as emitting a nested table reuses it
+                int picked = pick(context, frame);
+                emit(frame.nodes[picked], frame.indices[picked], frame.choices[picked], context, frame, target);
+            }
+        }
+
+        if (poolSink != null) poolSink.flush();
+    }
+
+    /**
+     * Adds the choices provided by the given node to the frame, returning how many were added.
+     */
+    private int collect(int node, @NotNull LootContext context, @NotNull Frame frame) {
+        if (!test(predicates, conditions[node], conditions[node + 1], context)) return 0;
+
+        switch (kinds[node]) {
+            case ALTERNATIVES -> {
+                for (int child = branches[node]; child < branches[node + 1]; child++) {
+                    int added = collect(children[child], context, frame);
+                    if (added > 0) return added;
+                }
+                return 0;
+            }
+            case GROUP -> {
+                int added = 0;
+                for (int child = branches[node]; child < branches[node + 1]; child++) {
+                    added += collect(children[child], context, frame);
+                }
+                return added;
+            }
+            case SEQUENCE -> {
+                int added = 0;
+                for (int child = branches[node]; child < branches[node + 1]; child++) {
+                    int next = collect(children[child], context, frame);
+                    if (next == 0) break;
+                    added += next;
+                }
+                return added;
+            }
+            case EXPANDED_TAG -> {
+                Material[] materials = (Material[]) payloads[node];
+                for (int i = 0; i < materials.length; i++) {
+                    frame.add(node, i, null);
+                }
+                return materials.length;
+            }
+            case OPAQUE -> {
+                List<LootEntry.Choice> choices = ((LootEntry) payloads[node]).requestChoices(context);
+                for (LootEntry.Choice choice : choices) {
+                    frame.add(node, -1, choice);
+                }
+                return choices.size();
+            }
+            default -> {
+                frame.add(node, -1, null);
+                return 1;
+            }
+        }
+    }
+
+    /**
+     * Picks one of the choices in the frame, weighted with each choice's weight, returning its index in the frame.
+     */
+    private int pick(@NotNull LootContext context, @NotNull Frame frame) {
+        double luck = context.get(LootContext.LUCK, 0d);
+
+        long totalWeight = 0;
+        for (int i = 0; i < frame.size; i++) {
+            int node = frame.nodes[i];
+            long weight = kinds[node] == OPAQUE ? frame.choices[i].getWeight(context) : weight(node, luck);
+
+            // Prevent the weight of this choice from being less than 1
+            totalWeight += Math.max(1, weight);
+            frame.weights[i] = totalWeight;
+        }
+
+        long value = context.require(LootContext.RANDOM).nextLong(0, totalWeight);
+
+        for (int i = 0; i < frame.size; i++) {
+            if (value < frame.weights[i]) return i;
+        }
+        return frame.size - 1;
+    }
+
+    private long weight(int node, double luck) {
+        return Math.max(1, (long) Math.floor(weights[node] + qualities[node] * luck));
+    }
+
+    /**
+     * Precomputes the distribution of the provided pool entries if the choices they provide and the weights of those
+     * choices never change, returning null otherwise.<br>
+     * This is the case when no entries have conditions or quality, and only items, tables, tags, and groups of those
+     * are used.
+     */
+    private @Nullable Distribution distribution(int @NotNull [] entries) {
+        Frame frame = new Frame();
+        for (int entry : entries) {
+            if (!collectStatic(entry, frame)) return null;
+        }
+
+        long total = 0;
+        long[] milestones = new long[frame.size];
+        for (int i = 0; i < frame.size; i++) {
+            total += Math.max(1, weight(frame.nodes[i], 0));
+            milestones[i] = total;
+        }
+
+        // Buckets are as wide as the average choice, so there are at most as many buckets as choices
+        long width = Math.max(1, (total + frame.size - 1) / Math.max(1, frame.size));
+
+        return new Distribution(Arrays.copyOf(frame.nodes, frame.size), Arrays.copyOf(frame.indices, frame.size),
+                milestones, Distribution.guide(milestones, total, width), width, total);
+    }
+
+    private boolean collectStatic(int node, @NotNull Frame frame) {
+        if (conditions[node] != conditions[node + 1]) return false;
+
+        switch (kinds[node]) {
+            case ITEM, EMPTY, TABLE, TAG, DELEGATE -> {
+                if (qualities[node] != 0) return false;
+                frame.add(node, -1, null);
+                return true;
+            }
+            case EXPANDED_TAG -> {
+                if (qualities[node] != 0) return false;
+                for (int i = 0; i < ((Material[]) payloads[node]).length; i++) {
+                    frame.add(node, i, null);
+                }
+                return true;
+            }
+            case GROUP -> {
+                for (int child = branches[node]; child < branches[node + 1]; child++) {
+                    if (!collectStatic(children[child], frame)) return false;
+                }
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * The fixed choices of a pool, along with a table for quickly finding which choice a random value falls into.<br>
+     * A single random value in {@code [0, total)} is drawn per roll, exactly like when choices are computed on every
+     * roll, so the same value always maps to the same choice. Instead of scanning every milestone, the guide table
+     * maps evenly sized buckets of values to the first choice that could contain them, so only a few milestones (one,
+     * on average) need to be checked.
+     * @param nodes the node of each choice
+     * @param indices the index of each choice within its node
+     * @param milestones the cumulative weight of each choice
+     * @param guide the index of the first choice whose milestone is past the start of each bucket
+     * @param width the range of values covered by each bucket
+     * @param total the total weight of every choice
+     */
+    private record Distribution(int @NotNull [] nodes, int @NotNull [] indices, long @NotNull [] milestones,
+                                int @NotNull [] guide, long width, long total) {
+
+        static int @NotNull [] guide(long @NotNull [] milestones, long total, long width) {
+            if (milestones.length == 0) return new int[0];
+
+            int[] guide = new int[(int) ((total - 1) / width + 1)];
+
+            int choice = 0;
+            for (int bucket = 0; bucket < guide.length; bucket++) {
+                while (milestones[choice] <= bucket * width) {
+                    choice++;
+                }
+                guide[bucket] = choice;
+            }
+            return guide;
+        }
+
+        int size() {
+            return nodes.length;
+        }
+
+        int pick(long value) {
+            int choice = guide[(int) (value / width)];
+            while (milestones[choice] <= value) {
+                choice++;
+            }
+            return choice;
+        }
+    }
+
+    /**
+     * Generates the loot of the provided choice into the sink.
+     */
+    private void emit(int node, int index, @Nullable LootEntry.Choice choice, @NotNull LootContext context,
+                      @NotNull Frame frame, @NotNull Consumer<ItemStack> sink) {
+        switch (kinds[node]) {
+            case ITEM -> sink.accept(apply(functions, modifiers[node], modifiers[node + 1], ItemStack.of((Material) payloads[node]), context));
+            case EMPTY -> {}
+            case TABLE -> {
+                BufferedSink buffer = buffered(functions, modifiers[node], modifiers[node + 1], sink, context);
+                ((CompiledLootTable) payloads[node]).generate(context, frame, buffer != null ? buffer : sink);
+                if (buffer != null) buffer.flush();
+            }
+            case TAG -> {
+                for (Material material : (Material[]) payloads[node]) {
+                    sink.accept(apply(functions, modifiers[node], modifiers[node + 1], ItemStack.of(material), context));
+                }
+            }
+            case EXPANDED_TAG -> sink.accept(ItemStack.of(((Material[]) payloads[node])[index]));
+            case DELEGATE -> ((LootEntry.Choice) payloads[node]).generate(context, sink);
+            case OPAQUE -> choice.generate(context, sink);
+            default -> throw new IllegalStateException("Node " + node + " cannot be chosen");
+        }
+    }
+
+    private static boolean test(@NotNull LootPredicate @NotNull [] predicates, int from, int to, @NotNull LootContext context) {
+        for (int i = from; i < to; i++) {
+            if (!predicates[i].test(context)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the given range of functions to the provided item, sharing a single draft between consecutive fusible
+     * functions like {@link LootFunction#apply(java.util.Collection, ItemStack, LootContext)}.
+     */
+    private static @NotNull ItemStack apply(@NotNull LootFunction @NotNull [] functions, int from, int to, @NotNull ItemStack item, @NotNull LootContext context) {
+        if (to - from == 1) return functions[from].apply(item, context);
+
+        ItemDraft draft = null;
+        for (int i = from; i < to; i++) {
+            if (functions[i] instanceof LootFunction.Fusible fusible) {
+                if (draft == null) draft = new ItemDraft(item);
+                fusible.modify(draft, context);
+            } else {
+                if (draft != null) {
+                    item = draft.build();
+                    draft = null;
+                }
+                item = functions[i].apply(item, context);
+            }
+        }
+        return draft != null ? draft.build() : item;
+    }
+
+    /**
+     * Returns a buffer in front of the provided sink that applies the given range of functions to each item when it's
+     * flushed, or null if the range is empty.
+     */
+    private static @Nullable BufferedSink buffered(@NotNull LootFunction @NotNull [] functions, int from, int to,
+                                                   @NotNull Consumer<ItemStack> sink, @NotNull LootContext context) {
+        return from == to ? null : new BufferedSink(item -> apply(functions, from, to, item, context), sink);
+    }
+
+    /**
+     * Scratch space for collecting and picking choices. Frames are only used between collecting and picking a choice,
+     * so a single frame can be shared by a table and every table nested inside it.
+     */
+    static final class Frame {
+
+        int size;
+        int @NotNull [] nodes = new int[8];
+        int @NotNull [] indices = new int[8];
+        @Nullable LootEntry.Choice @NotNull [] choices = new LootEntry.Choice[8];
+        long @NotNull [] weights = new long[8];
+
+        void add(int node, int index, @Nullable LootEntry.Choice choice) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                indices = Arrays.copyOf(indices, size * 2);
+                choices = Arrays.copyOf(choices, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+
+            nodes[size] = node;
+            indices[size] = index;
+            choices[size] = choice;
+            size++;
+        }
+    }
+
+    /**
+     * Lowers a table into the arrays of a compiled table. Nodes are added after their children, and nothing else is
+     * added to the shared arrays, so the range of each node ends where the range of the next node begins.
+     */
+    private static final class Compiler {
+
+        final List<LootPredicate> predicates = new ArrayList<>();
+        final List<LootFunction> functions = new ArrayList<>();
+        final List<Integer> children = new ArrayList<>();
+
+        final List<Byte> kinds = new ArrayList<>();
+        final List<Integer> conditions = new ArrayList<>(List.of(0));
+        final List<Integer> modifiers = new ArrayList<>(List.of(0));
+        final List<Integer> branches = new ArrayList<>(List.of(0));
+        final List<Long> weights = new ArrayList<>();
+        final List<Long> qualities = new ArrayList<>();
+        final List<Object> payloads = new ArrayList<>();
+
+        final List<int[]> poolEntries = new ArrayList<>();
+
+        /**
+         * The type that contexts are validated against, which holds for nested tables too since they're generated with
+         * the same context.
+         */
+        final @Nullable LootContextType type;
+
+        Compiler(@Nullable LootContextType type) {
+            this.type = type;
+        }
+
+        @NotNull CompiledLootTable table(@NotNull LootTable table) {
+            for (LootPool pool : table.pools()) {
+                poolEntries.add(pool.entries().stream().mapToInt(this::entry).toArray());
+            }
+
+            return new CompiledLootTable(table, this);
+        }
+
+        private int entry(@NotNull LootEntry entry) {
+            return switch (entry) {
+                case LootEntry.Item item -> add(ITEM, item.predicates(), item.functions(), item.weight(), item.quality(), item.name());
+                case LootEntry.Empty empty -> add(EMPTY, empty.predicates(), empty.functions(), empty.weight(), empty.quality(), null);
+                case LootEntry.LootTable table when table.value() instanceof Either.Right<?, LootTable>(LootTable nested) ->
+                        add(TABLE, table.predicates(), table.functions(), table.weight(), table.quality(), new Compiler(type).table(nested));
+                case LootEntry.LootTable table -> add(DELEGATE, table.predicates(), List.of(), table.weight(), table.quality(), table);
+                case LootEntry.Dynamic dynamic -> add(DELEGATE, dynamic.predicates(), List.of(), dynamic.weight(), dynamic.quality(), dynamic);
+                case LootEntry.Tag tag -> add(tag.expand() ? EXPANDED_TAG : TAG, tag.predicates(),
+                        tag.expand() ? List.of() : tag.functions(), tag.weight(), tag.quality(), materials(tag));
+                case LootEntry.Alternatives alternatives -> branch(ALTERNATIVES, alternatives.predicates(), alternatives.children());
+                case LootEntry.Group group -> branch(GROUP, group.predicates(), group.children());
+                case LootEntry.Sequence sequence -> branch(SEQUENCE, sequence.predicates(), sequence.children());
+                default -> add(OPAQUE, List.of(), List.of(), 0, 0, entry);
+            };
+        }
+
+        private int branch(byte kind, @NotNull List<LootPredicate> predicates, @NotNull List<LootEntry> entries) {
+            int[] branches = entries.stream().mapToInt(this::entry).toArray();
+            for (int branch : branches) {
+                children.add(branch);
+            }
+            return add(kind, predicates, List.of(), 0, 0, null);
+        }
+
+        private int add(byte kind, @NotNull List<LootPredicate> predicates, @NotNull List<LootFunction> functions,
+                        long weight, long quality, @Nullable Object payload) {
+            this.predicates.addAll(fold(predicates));
+            this.functions.addAll(functions);
+
+            kinds.add(kind);
+            conditions.add(this.predicates.size());
+            modifiers.add(this.functions.size());
+            branches.add(children.size());
+            weights.add(weight);
+            qualities.add(quality);
+            payloads.add(payload);
+
+            return kinds.size() - 1;
+        }
+
+        /**
+         * Removes the predicates that always pass for contexts of the validated type.
+         */
+        @NotNull List<LootPredicate> fold(@NotNull List<LootPredicate> predicates) {
+            if (type == null) return predicates;
+            return predicates.stream().filter(predicate -> !type.alwaysPasses(predicate)).toList();
+        }
+
+        private static @NotNull Material @NotNull [] materials(@NotNull LootEntry.Tag tag) {
+            List<Material> materials = new ArrayList<>();
+            for (RegistryKey<Material> key : tag.name()) {
+                Material material = MinecraftServer.process().material().get(key);
+                if (material != null) {
+                    materials.add(material);
+                }
+            }
+            return materials.toArray(Material[]::new);
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+package net.goldenstack.loot;
+
+import net.minestom.server.component.DataComponent;
+import net.minestom.server.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An item that is being modified by a chain of {@link LootFunction.Fusible fusible} functions.<br>
+ * Changes to the amount and components of the item are accumulated instead of creating a new item for each one, and
+ * the final item is only built once, when {@link #build()} is called. Reads see every change made so far, so functions
+ * behave exactly as if they were applied to a new item each time.
+ */
+public final class ItemDraft {
+
+    private static final @NotNull Object REMOVED = new Object();
+
+    private @NotNull ItemStack item;
+    private int amount;
+    private @Nullable Map<DataComponent<?>, Object> changes;
+
+    /**
+     * Creates a draft of the provided item, with no changes.
+     * @param item the item to start from
+     */
+    public ItemDraft(@NotNull ItemStack item) {
+        this.item = item;
+        this.amount = item.amount();
+    }
+
+    /**
+     * @return true if the item is air
+     */
+    public boolean isAir() {
+        return item.isAir();
+    }
+
+    /**
+     * @return the current amount of the item
+     */
+    public int amount() {
+        return amount;
+    }
+
+    /**
+     * Sets the amount of the item.
+     * @param amount the new amount
+     */
+    public void amount(int amount) {
+        if (amount > 0 && !item.isAir()) {
+            this.amount = amount;
+        } else {
+            // Non-positive amounts turn the item into air, which every following change has to see
+            this.item = build().withAmount(amount);
+            this.amount = item.amount();
+        }
+    }
+
+    /**
+     * Returns the current value of the provided component, like {@link ItemStack#get(DataComponent)}.
+     * @param component the component to get
+     * @return the value of the component, or null if the item doesn't have it
+     * @param <T> the type of the component
+     */
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable T get(@NotNull DataComponent<T> component) {
+        if (changes != null) {
+            Object value = changes.get(component);
+            if (value != null) {
+                return value == REMOVED ? null : (T) value;
+            }
+        }
+        return item.get(component);
+    }
+
+    /**
+     * Returns the current value of the provided component, or the default value if the item doesn't have it.
+     * @param component the component to get
+     * @param defaultValue the value to return if the item doesn't have the component
+     * @return the value of the component, or the default value
+     * @param <T> the type of the component
+     */
+    public <T> @NotNull T get(@NotNull DataComponent<T> component, @NotNull T defaultValue) {
+        T value = get(component);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Sets the provided component to the provided value. To remove a component, use {@link #remove(DataComponent)}.
+     * @param component the component to set
+     * @param value the new value
+     * @param <T> the type of the component
+     */
+    public <T> void set(@NotNull DataComponent<T> component, @NotNull T value) {
+        Objects.requireNonNull(value, "value");
+
+        if (item.isAir()) {
+            item = item.with(component, value);
+            amount = item.amount();
+            return;
+        }
+
+        if (changes == null) changes = new LinkedHashMap<>();
+        changes.put(component, value);
+    }
+
+    /**
+     * Removes the provided component from the item.
+     * @param component the component to remove
+     */
+    public void remove(@NotNull DataComponent<?> component) {
+        if (item.isAir()) {
+            item = item.without(component);
+            amount = item.amount();
+            return;
+        }
+
+        if (changes == null) changes = new LinkedHashMap<>();
+        changes.put(component, REMOVED);
+    }
+
+    /**
+     * Builds the item with every change made so far. If nothing has changed, the original item is returned.<br>
+     * The draft can continue to be used afterward, starting from the built item.
+     * @return the built item
+     */
+    public @NotNull ItemStack build() {
+        if (changes == null) {
+            // Only the amount changed, which doesn't need a builder
+            if (amount != item.amount()) {
+                item = item.withAmount(amount);
+                amount = item.amount();
+            }
+            return item;
+        }
+
+        ItemStack.Builder builder = item.builder();
+        if (amount != item.amount()) {
+            builder.amount(amount);
+        }
+        for (var entry : changes.entrySet()) {
+            if (entry.getValue() == REMOVED) {
+                builder.remove(entry.getKey());
+            } else {
+                set(builder, entry.getKey(), entry.getValue());
+            }
+        }
+
+        item = builder.build();
+        amount = item.amount();
+        changes = null;
+        return item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void set(@NotNull ItemStack.Builder builder, @NotNull DataComponent<T> component, @NotNull Object value) {
+        builder.set(component, (T) value);
+    }
+
+}
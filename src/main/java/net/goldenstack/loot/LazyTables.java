@@ -0,0 +1,156 @@
+package net.goldenstack.loot;
+
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.minestom.server.codec.Transcoder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * An immutable table map that only knows the location of each table up front, decoding each table the first time it is
+ * requested.<br>
+ * Decoding is single-flight: if several threads request the same undecoded table at once, only one of them decodes it
+ * and the rest wait for its result. Requests for other tables are not blocked. If decoding fails, the failure is thrown
+ * to the caller and the next request tries again.
+ */
+final class LazyTables extends AbstractMap<Key, LootTable> {
+
+    private final @NotNull Map<Key, Slot> slots;
+    private final @NotNull Set<Entry<Key, LootTable>> entries;
+
+    LazyTables(@NotNull Path directory) {
+        final Transcoder<BinaryTag> coder = Trove.tableCoder();
+
+        Map<Key, Slot> slots = new LinkedHashMap<>();
+        Map<Path, Throwable> failures = new LinkedHashMap<>();
+        for (Path path : Trove.findTables(directory)) {
+            try {
+                Key key = Trove.tableKey(directory, path);
+                slots.put(key, new Slot(key, path, coder));
+            } catch (RuntimeException e) {
+                failures.put(path, e);
+            }
+        }
+
+        // Files are only indexed up front, so invalid file names are the only errors that can be reported here
+        if (!failures.isEmpty()) {
+            throw new TableLoadException(failures);
+        }
+
+        this.slots = Collections.unmodifiableMap(slots);
+        this.entries = new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<Key, LootTable>> iterator() {
+                Iterator<Slot> iterator = LazyTables.this.slots.values().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Key, LootTable> next() {
+                        return iterator.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyTables.this.slots.size();
+            }
+        };
+    }
+
+    @Override
+    public @Nullable LootTable get(Object key) {
+        Slot slot = slots.get(key);
+        return slot != null ? slot.getValue() : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slots.containsKey(key);
+    }
+
+    @Override
+    public @NotNull Set<Key> keySet() {
+        return slots.keySet();
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public @NotNull Set<Entry<Key, LootTable>> entrySet() {
+        return entries;
+    }
+
+    /**
+     * The location of a single table, along with the table itself once it has been decoded.
+     */
+    private static final class Slot implements Entry<Key, LootTable> {
+
+        private final @NotNull Key key;
+        private final @NotNull Path path;
+        private final @NotNull Transcoder<BinaryTag> coder;
+
+        private volatile @Nullable LootTable table;
+
+        Slot(@NotNull Key key, @NotNull Path path, @NotNull Transcoder<BinaryTag> coder) {
+            this.key = key;
+            this.path = path;
+            this.coder = coder;
+        }
+
+        @Override
+        public @NotNull Key getKey() {
+            return key;
+        }
+
+        @Override
+        public @NotNull LootTable getValue() {
+            LootTable table = this.table;
+            if (table != null) return table;
+
+            synchronized (this) {
+                table = this.table;
+                if (table == null) {
+                    try {
+                        table = Trove.readTable(coder, path);
+                    } catch (RuntimeException e) {
+                        throw new TableLoadException(Map.of(path, e));
+                    }
+                    this.table = table;
+                }
+                return table;
+            }
+        }
+
+        @Override
+        public LootTable setValue(LootTable value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry<?, ?> entry && key.equals(entry.getKey()) && getValue().equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+}
@@ -1,6 +1,9 @@
 package net.goldenstack.loot;
 
+import net.goldenstack.loot.util.EnchantmentUtils;
 import net.goldenstack.loot.util.VanillaInterface;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
 import net.minestom.server.coordinate.Point;
 import net.minestom.server.entity.Entity;
 import net.minestom.server.entity.Player;
@@ -8,20 +11,25 @@ import net.minestom.server.entity.damage.DamageType;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.instance.block.Block;
 import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.enchant.Enchantment;
+import net.minestom.server.registry.RegistryKey;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Random;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
 
 /**
  * Stores a dynamic amount of information that may be relevant during the generation of loot.
  */
 public sealed interface LootContext permits LootContextImpl {
 
-    @NotNull LootContext.Key<Random> RANDOM = LootContext.key("minecraft:random");
+    @NotNull LootContext.Key<RandomGenerator> RANDOM = LootContext.key("minecraft:random");
     @NotNull LootContext.Key<Float> EXPLOSION_RADIUS = LootContext.key("minecraft:explosion_radius");
     @NotNull LootContext.Key<Player> LAST_DAMAGE_PLAYER = LootContext.key("minecraft:last_damage_player");
     @NotNull LootContext.Key<Instance> WORLD = LootContext.key("minecraft:world");
@@ -36,6 +44,11 @@ public sealed interface LootContext permits LootContextImpl {
     @NotNull LootContext.Key<Double> LUCK = LootContext.key("minecraft:luck");
     @NotNull LootContext.Key<Integer> ENCHANTMENT_LEVEL = LootContext.key("minecraft:enchantment_level");
 
+    /**
+     * The random sequences of the world. When present, tables with a random sequence use it instead of {@link #RANDOM}.
+     */
+    @NotNull LootContext.Key<RandomSequences> RANDOM_SEQUENCES = LootContext.key("trove:random_sequences");
+
     /**
      * Creates a loot context from the provided map of key -> object and vanilla interface.
      * @param vanilla this context's interface with vanilla features
@@ -46,6 +59,15 @@ public sealed interface LootContext permits LootContextImpl {
         return LootContextImpl.from(vanilla, data);
     }
 
+    /**
+     * Creates a new, empty builder for loot contexts with the provided vanilla interface.
+     * @param vanilla the vanilla interface of the contexts to build
+     * @return the new builder
+     */
+    static @NotNull Builder builder(@NotNull VanillaInterface vanilla) {
+        return new Builder(vanilla);
+    }
+
     /**
      * Creates a key from the provided key.
      */
@@ -54,12 +76,219 @@ public sealed interface LootContext permits LootContextImpl {
     }
 
     /**
-     * Represents a key that stores information in a loot context.
+     * Represents a key that stores information in a loot context.<br>
+     * Every distinct id is given a small, dense ordinal the first time a key with it is created, which is used as the
+     * key's index in the storage of each context. Keys with the same id always have the same ordinal.
      * @param id the string id of the key
+     * @param ordinal the index of the key in each context, which must be the ordinal of its id
      * @param <T> the type parameter of the key
      */
     @SuppressWarnings("unused")
-    record Key<T>(@NotNull String id) {}
+    record Key<T>(@NotNull String id, int ordinal) {
+        public Key {
+            if (ordinal != LootContextImpl.ordinal(id)) {
+                throw new IllegalArgumentException("Ordinal " + ordinal + " does not belong to key '" + id + "'");
+            }
+        }
+
+        /**
+         * Creates a key with the provided id, assigning it an ordinal if it doesn't have one yet.
+         * @param id the string id of the key
+         */
+        public Key(@NotNull String id) {
+            this(id, LootContextImpl.ordinal(id));
+        }
+    }
+
+    /**
+     * A mutable builder for loot contexts, which is meant to be kept around and reused instead of building a new map for
+     * every context, such as one builder per thread or per instance tick loop. Builders are not thread-safe.<br>
+     * There are two ways to get a context out of a builder:
+     * <ul>
+     *     <li>{@link #build()} copies the current values into a new context, which is independent of the builder and
+     *     may be retained indefinitely.</li>
+     *     <li>{@link #borrow()} returns a context that reads directly from the builder without allocating anything. A
+     *     borrowed context is only valid until the builder is next modified (including being {@link #clear() cleared}),
+     *     so it must not be retained, stored, or handed to another thread. It is meant to be passed straight to
+     *     something like {@link LootTable#generate(LootContext, java.util.function.Consumer)} and then forgotten. Use
+     *     {@link LootContext#with(Key, Object)} or {@link #build()} to get a context that may be kept.</li>
+     * </ul>
+     */
+    final class Builder {
+
+        private @NotNull VanillaInterface vanilla;
+        private @Nullable Object @NotNull [] values;
+        private @Nullable LootContextImpl borrowed;
+
+        private Builder(@NotNull VanillaInterface vanilla) {
+            this.vanilla = vanilla;
+            this.values = new Object[LootContextImpl.ordinals()];
+        }
+
+        /**
+         * Sets the vanilla interface of the contexts built by this builder.
+         * @param vanilla the new vanilla interface
+         * @return this builder
+         */
+        public @NotNull Builder vanilla(@NotNull VanillaInterface vanilla) {
+            this.vanilla = vanilla;
+            this.borrowed = null;
+            return this;
+        }
+
+        /**
+         * Sets the provided key to the provided value, replacing any existing value.
+         * @param key the key to set
+         * @param value the value to set it to, or null to remove the key
+         * @return this builder
+         * @param <T> the type of the value
+         */
+        public <T> @NotNull Builder set(@NotNull Key<T> key, @Nullable T value) {
+            return put(key, value);
+        }
+
+        /**
+         * Sets the provided key to a value that is only computed the first time it's read, replacing any existing value.
+         * The key counts as present without computing the value, so the supplier must never return null.<br>
+         * The value is computed at most once, even if several contexts built from this builder read it.
+         * @param key the key to set
+         * @param supplier the supplier of the value
+         * @return this builder
+         * @param <T> the type of the value
+         */
+        public <T> @NotNull Builder lazy(@NotNull Key<T> key, @NotNull Supplier<? extends T> supplier) {
+            return put(key, new LootContextImpl.Lazy(supplier));
+        }
+
+        private @NotNull Builder put(@NotNull Key<?> key, @Nullable Object value) {
+            int ordinal = key.ordinal();
+            if (ordinal >= values.length) {
+                if (value == null) return this;
+
+                values = Arrays.copyOf(values, Math.max(ordinal + 1, LootContextImpl.ordinals()));
+                borrowed = null;
+            }
+
+            values[ordinal] = value;
+            return this;
+        }
+
+        /**
+         * Removes the value of the provided key, if there is one.
+         * @param key the key to remove
+         * @return this builder
+         */
+        public @NotNull Builder remove(@NotNull Key<?> key) {
+            return put(key, null);
+        }
+
+        /**
+         * Removes every value from this builder so that it can be reused for another context. The vanilla interface is
+         * kept.
+         * @return this builder
+         */
+        public @NotNull Builder clear() {
+            Arrays.fill(values, null);
+            return this;
+        }
+
+        /**
+         * Builds a new context with the current values of this builder. The context is independent of this builder, so
+         * it may be retained indefinitely.
+         * @return the new context
+         */
+        public @NotNull LootContext build() {
+            int length = values.length;
+            while (length > 0 && values[length - 1] == null) {
+                length--;
+            }
+            return new LootContextImpl(vanilla, Arrays.copyOf(values, length));
+        }
+
+        /**
+         * Returns a context that reads directly from this builder, without copying or allocating anything. The context
+         * is only valid until this builder is next modified or cleared, so it must not be retained.
+         * @return the borrowed context
+         */
+        public @NotNull LootContext borrow() {
+            LootContextImpl borrowed = this.borrowed;
+            if (borrowed == null) {
+                borrowed = this.borrowed = new LootContextImpl(vanilla, values);
+            }
+            return borrowed;
+        }
+    }
+
+    /**
+     * A value derived from a context that is expensive enough to be worth caching during a single generation, such as
+     * the level of an enchantment on an entity's equipment or an entity's serialized NBT.<br>
+     * Each memo is computed from an input, which is compared by identity, and an argument, which is compared with
+     * {@link Object#equals(Object)}. Memos themselves are compared by identity, so they should be constants.
+     * @param <I> the type of the input
+     * @param <A> the type of the argument
+     * @param <V> the type of the value
+     * @see LootContext#memoize(Memo, Object, Object)
+     */
+    final class Memo<I, A, V> {
+
+        /**
+         * Computes the value of a memo.
+         */
+        @FunctionalInterface
+        public interface Computation<I, A, V> {
+            @Nullable V compute(@NotNull LootContext context, @Nullable I input, @Nullable A argument);
+        }
+
+        /**
+         * The level of an enchantment on an item.
+         */
+        public static final @NotNull Memo<ItemStack, RegistryKey<Enchantment>, Integer> ITEM_ENCHANTMENT_LEVEL =
+                new Memo<>((context, item, enchantment) -> EnchantmentUtils.level(item, enchantment));
+
+        /**
+         * The highest level of an enchantment across an entity's equipment.
+         */
+        public static final @NotNull Memo<Entity, RegistryKey<Enchantment>, Integer> ENTITY_ENCHANTMENT_LEVEL =
+                new Memo<>((context, entity, enchantment) -> EnchantmentUtils.level(entity, enchantment));
+
+        /**
+         * The serialized NBT of an entity.
+         */
+        public static final @NotNull Memo<Entity, Void, BinaryTag> ENTITY_NBT =
+                new Memo<>((context, entity, ignored) -> context.vanilla().serializeEntity(entity));
+
+        /**
+         * A command storage compound, with the key of the storage as the argument.
+         */
+        public static final @NotNull Memo<Void, net.kyori.adventure.key.Key, CompoundBinaryTag> COMMAND_STORAGE =
+                new Memo<>((context, ignored, storage) -> context.vanilla().commandStorage(storage));
+
+        /**
+         * The score of an entity, with the objective as the argument.
+         */
+        public static final @NotNull Memo<Entity, String, Integer> ENTITY_SCORE =
+                new Memo<>((context, entity, objective) -> context.vanilla().score(entity, objective));
+
+        /**
+         * The score of a name, with the objective as the argument.
+         */
+        public static final @NotNull Memo<String, String, Integer> NAME_SCORE =
+                new Memo<>((context, name, objective) -> context.vanilla().score(name, objective));
+
+        private final @NotNull Computation<I, A, V> computation;
+
+        /**
+         * Creates a new memo that computes its value with the provided computation.
+         * @param computation the computation of the memo's value
+         */
+        public Memo(@NotNull Computation<I, A, V> computation) {
+            this.computation = computation;
+        }
+
+        @Nullable V compute(@NotNull LootContext context, @Nullable I input, @Nullable A argument) {
+            return computation.compute(context, input, argument);
+        }
+    }
 
     /**
      * Returns whether or not this context has the provided key.
@@ -93,6 +322,41 @@ public sealed interface LootContext permits LootContextImpl {
      */
     <T> @NotNull T require(@NotNull Key<T> key);
 
+    /**
+     * Returns a copy of this context with the provided key set to the provided value. This context is not modified.
+     * @param key the key to set
+     * @param value the value to set it to
+     * @return the new context instance
+     * @param <T> the type of the value
+     */
+    <T> @NotNull LootContext with(@NotNull Key<T> key, @NotNull T value);
+
+    /**
+     * Returns a copy of this context with the provided key set to a value that is only computed the first time it's
+     * read, so generating loot that never reads it never computes it. This context is not modified.<br>
+     * The key counts as present without computing the value, so the supplier must never return null. The value is
+     * computed at most once, even if it's read from several threads or from contexts derived from the new one.
+     * @param key the key to set
+     * @param supplier the supplier of the value
+     * @return the new context instance
+     * @param <T> the type of the value
+     */
+    <T> @NotNull LootContext withLazy(@NotNull Key<T> key, @NotNull Supplier<? extends T> supplier);
+
+    /**
+     * Returns the value of the provided memo for the provided input and argument. During generation, each value is only
+     * computed the first time it's requested, and is then reused until that call to generate returns; nothing is
+     * cached between separate calls. Outside of generation, the value is computed every time.
+     * @param memo the memo to compute
+     * @param input the input, compared by identity
+     * @param argument the argument, compared with {@link Object#equals(Object)}
+     * @return the value of the memo
+     * @param <I> the type of the input
+     * @param <A> the type of the argument
+     * @param <V> the type of the value
+     */
+    <I, A, V> @Nullable V memoize(@NotNull Memo<I, A, V> memo, @Nullable I input, @Nullable A argument);
+
     /**
      * Returns this context's vanilla interface. This is not part of normal Minecraft loot contexts, but it's required
      * here for integration with other potential Minestom features.
@@ -101,30 +365,135 @@ public sealed interface LootContext permits LootContextImpl {
 
 }
 
-record LootContextImpl(@NotNull VanillaInterface vanilla, @NotNull Map<String, Object> data) implements LootContext {
+final class LootContextImpl implements LootContext {
+
+    private static final @NotNull Map<String, Integer> ORDINALS = new HashMap<>();
 
-    LootContextImpl {
-        data = Map.copyOf(data);
+    /**
+     * Returns the ordinal of the key with the provided id, assigning the next one if it doesn't have one yet.
+     */
+    static synchronized int ordinal(@NotNull String id) {
+        return ORDINALS.computeIfAbsent(id, ignored -> ORDINALS.size());
+    }
+
+    /**
+     * Returns the number of ordinals that have been assigned so far.
+     */
+    static synchronized int ordinals() {
+        return ORDINALS.size();
+    }
+
+    private final @NotNull VanillaInterface vanilla;
+
+    /**
+     * The value of each key, indexed by its ordinal. Keys created after this context are past the end of the array.
+     */
+    private final @Nullable Object @NotNull [] values;
+
+    /**
+     * The memoized values of this context, or null if it isn't scoped to a generation or nothing has been memoized yet.
+     */
+    private @Nullable Map<MemoKey, Object> memos;
+    private final boolean scoped;
+
+    LootContextImpl(@NotNull VanillaInterface vanilla, @Nullable Object @NotNull [] values) {
+        this(vanilla, values, false);
+    }
+
+    private LootContextImpl(@NotNull VanillaInterface vanilla, @Nullable Object @NotNull [] values, boolean scoped) {
+        this.vanilla = vanilla;
+        this.values = values;
+        this.scoped = scoped;
+    }
+
+    /**
+     * Returns a context with the same values as the provided one, but with its own memoized values. Each call to
+     * generate uses a new scope, so values are never memoized across separate generations or shared across threads.
+     */
+    static @NotNull LootContext scoped(@NotNull LootContext context) {
+        LootContextImpl impl = (LootContextImpl) context;
+        return new LootContextImpl(impl.vanilla, impl.values, true);
+    }
+
+    /**
+     * Returns a copy of the provided context without a value for the provided key.
+     */
+    static @NotNull LootContext without(@NotNull LootContext context, @NotNull Key<?> key) {
+        LootContextImpl impl = (LootContextImpl) context;
+        if (!impl.has(key)) return impl;
+
+        Object[] values = impl.values.clone();
+        values[key.ordinal()] = null;
+        return new LootContextImpl(impl.vanilla, values);
+    }
+
+    /**
+     * The key of a memoized value. Inputs are compared by identity, and arguments by equality.
+     */
+    private record MemoKey(@NotNull Memo<?, ?, ?> memo, @Nullable Object input, @Nullable Object argument) {
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof MemoKey other && memo == other.memo && input == other.input &&
+                    Objects.equals(argument, other.argument);
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(memo) * 31 + System.identityHashCode(input)) * 31 + Objects.hashCode(argument);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <I, A, V> @Nullable V memoize(@NotNull Memo<I, A, V> memo, @Nullable I input, @Nullable A argument) {
+        if (!scoped) return memo.compute(this, input, argument);
+
+        if (memos == null) memos = new HashMap<>();
+
+        MemoKey key = new MemoKey(memo, input, argument);
+        Object value = memos.get(key);
+        if (value == null) {
+            V computed = memo.compute(this, input, argument);
+            memos.put(key, computed != null ? computed : MemoKey.class);
+            return computed;
+        }
+
+        return value == MemoKey.class ? null : (V) value;
     }
 
     static @NotNull LootContext from(@NotNull VanillaInterface vanilla, @NotNull Map<Key<?>, Object> data) {
-        Map<String, Object> mapped = new HashMap<>();
+        int length = 0;
+        for (Key<?> key : data.keySet()) {
+            length = Math.max(length, key.ordinal() + 1);
+        }
+
+        Object[] values = new Object[length];
         for (Map.Entry<Key<?>, Object> entry : data.entrySet()) {
-            mapped.put(entry.getKey().id(), entry.getValue());
+            values[entry.getKey().ordinal()] = Objects.requireNonNull(entry.getValue(), "value");
         }
 
-        return new LootContextImpl(vanilla, mapped);
+        return new LootContextImpl(vanilla, values);
+    }
+
+    @Override
+    public @NotNull VanillaInterface vanilla() {
+        return vanilla;
     }
 
     @Override
     public boolean has(@NotNull Key<?> key) {
-        return data.containsKey(key.id());
+        int ordinal = key.ordinal();
+        return ordinal < values.length && values[ordinal] != null;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T> @Nullable T get(@NotNull Key<T> key) {
-        return (T) data.get(key.id());
+        int ordinal = key.ordinal();
+        if (ordinal >= values.length) return null;
+
+        Object value = values[ordinal];
+        return (T) (value instanceof Lazy lazy ? lazy.get() : value);
     }
 
     @Override
@@ -133,6 +502,54 @@ record LootContextImpl(@NotNull VanillaInterface vanilla, @NotNull Map<String, O
         return get != null ? get : defaultValue;
     }
 
+    @Override
+    public <T> @NotNull LootContext with(@NotNull Key<T> key, @NotNull T value) {
+        Object[] values = Arrays.copyOf(this.values, Math.max(this.values.length, key.ordinal() + 1));
+        values[key.ordinal()] = Objects.requireNonNull(value, "value");
+        return new LootContextImpl(vanilla, values);
+    }
+
+    @Override
+    public <T> @NotNull LootContext withLazy(@NotNull Key<T> key, @NotNull Supplier<? extends T> supplier) {
+        Object[] values = Arrays.copyOf(this.values, Math.max(this.values.length, key.ordinal() + 1));
+        values[key.ordinal()] = new Lazy(supplier);
+        return new LootContextImpl(vanilla, values);
+    }
+
+    /**
+     * A value that is computed the first time it's read, and then stored.
+     */
+    static final class Lazy {
+
+        private @Nullable Supplier<?> supplier;
+        private volatile @Nullable Object value;
+
+        Lazy(@NotNull Supplier<?> supplier) {
+            this.supplier = supplier;
+        }
+
+        @NotNull Object get() {
+            Object value = this.value;
+            if (value != null) return value;
+
+            synchronized (this) {
+                value = this.value;
+                if (value == null) {
+                    value = Objects.requireNonNull(Objects.requireNonNull(supplier).get(), "Lazy context value was null");
+                    this.value = value;
+                    supplier = null;
+                }
+                return value;
+            }
+        }
+
+        @Override
+        public String toString() {
+            Object value = this.value;
+            return value != null ? String.valueOf(value) : "<lazy>";
+        }
+    }
+
     @Override
     public <T> @NotNull T require(@NotNull Key<T> key) {
         T get = get(key);
@@ -142,4 +559,45 @@ record LootContextImpl(@NotNull VanillaInterface vanilla, @NotNull Map<String, O
 
         throw new NoSuchElementException("No value for key '" + key + "'");
     }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof LootContextImpl other)) return false;
+        if (!vanilla.equals(other.vanilla)) return false;
+
+        int length = Math.max(values.length, other.values.length);
+        for (int i = 0; i < length; i++) {
+            if (!Objects.equals(i < values.length ? values[i] : null, i < other.values.length ? other.values[i] : null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = vanilla.hashCode();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                hash += i ^ values[i].hashCode();
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LootContextImpl[vanilla=").append(vanilla).append(", data={");
+        boolean first = true;
+        synchronized (LootContextImpl.class) {
+            for (Map.Entry<String, Integer> entry : ORDINALS.entrySet()) {
+                int ordinal = entry.getValue();
+                if (ordinal >= values.length || values[ordinal] == null) continue;
+                if (!first) builder.append(", ");
+                builder.append(entry.getKey()).append('=').append(values[ordinal]);
+                first = false;
+            }
+        }
+        return builder.append("}]").toString();
+    }
 }
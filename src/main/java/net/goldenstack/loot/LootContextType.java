@@ -0,0 +1,200 @@
+package net.goldenstack.loot;
+
+import net.kyori.adventure.key.Key;
+import net.minestom.server.codec.Codec;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * A set of context parameters that a loot table is generated with, like the {@code type} field of vanilla loot tables
+ * (e.g. {@code minecraft:block} or {@code minecraft:entity}).<br>
+ * Required parameters must be present in every context that the table is generated with, and are checked once when
+ * generation starts. The table itself may only use required and optional parameters, which is checked when tables are
+ * {@link TableLinker linked}.<br>
+ * Keys that aren't {@link #PARAMETERS parameters}, like the random number generator and the world, are never checked.
+ * @param key the key of this type
+ * @param required the parameters that every context must have
+ * @param optional the parameters that contexts may have, in addition to the required ones
+ */
+public record LootContextType(@NotNull Key key, @NotNull Set<LootContext.Key<?>> required, @NotNull Set<LootContext.Key<?>> optional) {
+
+    /**
+     * Every key that is a parameter, and is thus checked by types.
+     */
+    public static final @NotNull Set<LootContext.Key<?>> PARAMETERS = Set.of(
+            LootContext.THIS_ENTITY, LootContext.LAST_DAMAGE_PLAYER, LootContext.DAMAGE_SOURCE,
+            LootContext.ATTACKING_ENTITY, LootContext.DIRECT_ATTACKING_ENTITY, LootContext.ORIGIN,
+            LootContext.BLOCK_STATE, LootContext.TOOL, LootContext.EXPLOSION_RADIUS, LootContext.ENCHANTMENT_LEVEL,
+            LootContext.ENCHANTMENT_ACTIVE
+    );
+
+    private static final @NotNull Map<Key, LootContextType> TYPES = new HashMap<>();
+
+    public static final @NotNull LootContextType EMPTY = register("empty", List.of(), List.of());
+    public static final @NotNull LootContextType CHEST = register("chest",
+            List.of(LootContext.ORIGIN), List.of(LootContext.THIS_ENTITY));
+    public static final @NotNull LootContextType COMMAND = register("command",
+            List.of(LootContext.ORIGIN), List.of(LootContext.THIS_ENTITY));
+    public static final @NotNull LootContextType SELECTOR = register("selector",
+            List.of(LootContext.ORIGIN, LootContext.THIS_ENTITY), List.of());
+    public static final @NotNull LootContextType FISHING = register("fishing",
+            List.of(LootContext.ORIGIN, LootContext.TOOL), List.of(LootContext.THIS_ENTITY));
+    public static final @NotNull LootContextType ENTITY = register("entity",
+            List.of(LootContext.THIS_ENTITY, LootContext.ORIGIN, LootContext.DAMAGE_SOURCE),
+            List.of(LootContext.ATTACKING_ENTITY, LootContext.DIRECT_ATTACKING_ENTITY, LootContext.LAST_DAMAGE_PLAYER));
+    public static final @NotNull LootContextType EQUIPMENT = register("equipment",
+            List.of(LootContext.ORIGIN, LootContext.THIS_ENTITY), List.of());
+    public static final @NotNull LootContextType ARCHAEOLOGY = register("archaeology",
+            List.of(LootContext.ORIGIN), List.of(LootContext.THIS_ENTITY, LootContext.TOOL));
+    public static final @NotNull LootContextType GIFT = register("gift",
+            List.of(LootContext.ORIGIN, LootContext.THIS_ENTITY), List.of());
+    public static final @NotNull LootContextType BARTER = register("barter",
+            List.of(LootContext.THIS_ENTITY), List.of());
+    public static final @NotNull LootContextType VAULT = register("vault",
+            List.of(LootContext.ORIGIN), List.of(LootContext.THIS_ENTITY, LootContext.TOOL));
+    public static final @NotNull LootContextType ADVANCEMENT_REWARD = register("advancement_reward",
+            List.of(LootContext.THIS_ENTITY, LootContext.ORIGIN), List.of());
+    public static final @NotNull LootContextType ADVANCEMENT_ENTITY = register("advancement_entity",
+            List.of(LootContext.THIS_ENTITY, LootContext.ORIGIN), List.of());
+    public static final @NotNull LootContextType ADVANCEMENT_LOCATION = register("advancement_location",
+            List.of(LootContext.THIS_ENTITY, LootContext.ORIGIN, LootContext.TOOL, LootContext.BLOCK_STATE), List.of());
+    public static final @NotNull LootContextType BLOCK_USE = register("block_use",
+            List.of(LootContext.THIS_ENTITY, LootContext.ORIGIN, LootContext.BLOCK_STATE), List.of());
+    public static final @NotNull LootContextType GENERIC = register("generic",
+            List.of(LootContext.THIS_ENTITY, LootContext.LAST_DAMAGE_PLAYER, LootContext.DAMAGE_SOURCE,
+                    LootContext.ATTACKING_ENTITY, LootContext.DIRECT_ATTACKING_ENTITY, LootContext.ORIGIN,
+                    LootContext.BLOCK_STATE, LootContext.TOOL, LootContext.EXPLOSION_RADIUS), List.of());
+    public static final @NotNull LootContextType BLOCK = register("block",
+            List.of(LootContext.BLOCK_STATE, LootContext.ORIGIN, LootContext.TOOL),
+            List.of(LootContext.THIS_ENTITY, LootContext.EXPLOSION_RADIUS));
+    public static final @NotNull LootContextType SHEARING = register("shearing",
+            List.of(LootContext.ORIGIN), List.of(LootContext.THIS_ENTITY, LootContext.TOOL));
+    public static final @NotNull LootContextType ENCHANTED_DAMAGE = register("enchanted_damage",
+            List.of(LootContext.THIS_ENTITY, LootContext.ENCHANTMENT_LEVEL, LootContext.ORIGIN, LootContext.DAMAGE_SOURCE),
+            List.of(LootContext.DIRECT_ATTACKING_ENTITY, LootContext.ATTACKING_ENTITY));
+    public static final @NotNull LootContextType ENCHANTED_ITEM = register("enchanted_item",
+            List.of(LootContext.TOOL, LootContext.ENCHANTMENT_LEVEL), List.of());
+    public static final @NotNull LootContextType ENCHANTED_LOCATION = register("enchanted_location",
+            List.of(LootContext.THIS_ENTITY, LootContext.ENCHANTMENT_LEVEL, LootContext.ORIGIN, LootContext.ENCHANTMENT_ACTIVE), List.of());
+    public static final @NotNull LootContextType ENCHANTED_ENTITY = register("enchanted_entity",
+            List.of(LootContext.THIS_ENTITY, LootContext.ENCHANTMENT_LEVEL, LootContext.ORIGIN), List.of());
+    public static final @NotNull LootContextType HIT_BLOCK = register("hit_block",
+            List.of(LootContext.THIS_ENTITY, LootContext.ENCHANTMENT_LEVEL, LootContext.ORIGIN, LootContext.BLOCK_STATE), List.of());
+
+    /**
+     * Decodes types by key. Unknown types are decoded as {@link #unchecked(Key) unchecked} types, so that tables with
+     * newer or custom types still load.
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public static final @NotNull Codec<LootContextType> CODEC = Codec.KEY.transform(LootContextType::get, LootContextType::key);
+
+    public LootContextType {
+        required = Set.copyOf(required);
+        optional = Set.copyOf(optional);
+    }
+
+    private static @NotNull LootContextType register(@NotNull String name, @NotNull List<LootContext.Key<?>> required,
+                                                     @NotNull List<LootContext.Key<?>> optional) {
+        LootContextType type = new LootContextType(Key.key(name), Set.copyOf(required), Set.copyOf(optional));
+        TYPES.put(type.key(), type);
+        return type;
+    }
+
+    /**
+     * Returns the vanilla type with the provided key, or an {@link #unchecked(Key) unchecked} type if there isn't one.
+     * @param key the key of the type
+     * @return the type
+     */
+    public static @NotNull LootContextType get(@NotNull Key key) {
+        LootContextType type = TYPES.get(key);
+        return type != null ? type : unchecked(key);
+    }
+
+    /**
+     * Creates a type that requires nothing and allows every parameter, so nothing about it is ever checked.
+     * @param key the key of the type
+     * @return the new type
+     */
+    public static @NotNull LootContextType unchecked(@NotNull Key key) {
+        return new LootContextType(key, Set.of(), PARAMETERS);
+    }
+
+    /**
+     * Returns whether or not tables of this type may use the provided key. Keys that aren't parameters are always
+     * allowed.
+     * @param key the key to check
+     * @return true if the key is required, optional, or not a parameter
+     */
+    public boolean allows(@NotNull LootContext.Key<?> key) {
+        return !PARAMETERS.contains(key) || required.contains(key) || optional.contains(key);
+    }
+
+    /**
+     * Makes sure that the provided context has every required parameter.
+     * @param context the context to check
+     * @throws NoSuchElementException if any required parameters are missing
+     */
+    public void validate(@NotNull LootContext context) {
+        for (LootContext.Key<?> key : required) {
+            if (!context.has(key)) {
+                throw new NoSuchElementException("Missing parameter '" + key.id() + "' required by loot context type '" +
+                        this.key.asString() + "'");
+            }
+        }
+    }
+
+    /**
+     * Returns the parameters that the provided node reads from the context directly (not including its children).
+     * @param node a record from a loot table, such as a predicate, function, entry, or number
+     * @return the keys of the parameters that the node uses
+     */
+    static @NotNull List<LootContext.Key<?>> referenced(@NotNull Object node) {
+        return switch (node) {
+            case LootPredicate.BlockStateProperty ignored -> List.of(LootContext.BLOCK_STATE);
+            case LootPredicate.DamageSourceProperties ignored -> List.of(LootContext.ORIGIN, LootContext.DAMAGE_SOURCE);
+            case LootPredicate.EnchantmentActiveCheck ignored -> List.of(LootContext.ENCHANTMENT_ACTIVE);
+            case LootPredicate.EntityProperties predicate -> List.of(LootContext.ORIGIN, predicate.entity().key());
+            case LootPredicate.EntityScores predicate -> List.of(predicate.entity().key());
+            case LootPredicate.KilledByPlayer ignored -> List.of(LootContext.LAST_DAMAGE_PLAYER);
+            case LootPredicate.LocationCheck ignored -> List.of(LootContext.ORIGIN);
+            case LootPredicate.MatchTool ignored -> List.of(LootContext.TOOL);
+            case LootPredicate.RandomChanceWithEnchantedBonus ignored -> List.of(LootContext.ATTACKING_ENTITY);
+            case LootPredicate.SurvivesExplosion ignored -> List.of(LootContext.EXPLOSION_RADIUS);
+            case LootPredicate.TableBonus ignored -> List.of(LootContext.TOOL);
+            case LootFunction.ApplyBonus ignored -> List.of(LootContext.TOOL);
+            case LootFunction.CopyName function -> List.of(function.source().key());
+            case LootFunction.CopyState ignored -> List.of(LootContext.BLOCK_STATE);
+            case LootFunction.EnchantedCountIncrease ignored -> List.of(LootContext.ATTACKING_ENTITY);
+            case LootFunction.ExplosionDecay ignored -> List.of(LootContext.EXPLOSION_RADIUS);
+            case LootFunction.FillPlayerHead function -> List.of(function.entity().key());
+            case LootEntry.Dynamic ignored -> List.of(LootContext.BLOCK_STATE);
+            case LootNumber.EnchantmentLevel ignored -> List.of(LootContext.ENCHANTMENT_LEVEL);
+            case LootScore.Context score -> List.of(score.name().key());
+            case LootNBT.Context.Target.BlockEntity ignored -> List.of(LootContext.BLOCK_STATE, LootContext.ORIGIN);
+            case LootNBT.Context.Target.Entity target -> List.of(target.target().key());
+            default -> List.of();
+        };
+    }
+
+    /**
+     * Returns whether or not the provided predicate always passes for contexts of this type, because everything it
+     * checks for is a required parameter.
+     * @param predicate the predicate to check
+     * @return true if the predicate is known to always pass
+     */
+    boolean alwaysPasses(@NotNull LootPredicate predicate) {
+        return switch (predicate) {
+            case LootPredicate.KilledByPlayer ignored -> required.contains(LootContext.LAST_DAMAGE_PLAYER);
+            case LootPredicate.LocationCheck check -> check.predicate() == null && required.contains(LootContext.ORIGIN);
+            case LootPredicate.EntityProperties properties -> properties.predicate() == null;
+            case LootPredicate.EntityScores scores -> scores.scores().isEmpty() && required.contains(scores.entity().key());
+            case LootPredicate.AllOf allOf -> allOf.terms().stream().allMatch(this::alwaysPasses);
+            // Only the first term, since the terms before a passing one might consume random numbers
+            case LootPredicate.AnyOf anyOf -> !anyOf.terms().isEmpty() && alwaysPasses(anyOf.terms().getFirst());
+            case LootPredicate.Reference reference -> reference.resolved() != null && alwaysPasses(reference.resolved());
+            default -> false;
+        };
+    }
+
+}
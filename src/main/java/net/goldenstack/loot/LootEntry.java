@@ -18,6 +18,7 @@ import org.jetbrains.annotations.Range;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * An entry in a loot table that can generate a list of {@link Choice choices} that each have their own loot and weight.
@@ -161,20 +162,23 @@ public interface LootEntry {
 
         @Override
         public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
+            return LootGenerator.collect(this, context);
+        }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
             Block block = context.get(LootContext.BLOCK_STATE);
-            if (block == null) return List.of();
+            if (block == null) return;
 
-            return switch (name.asString()) {
+            switch (name.asString()) {
                 case "minecraft:sherds" -> {
-                    List<ItemStack> items = new ArrayList<>();
                     for (Material material : block.getTag(VanillaInterface.DECORATED_POT_SHERDS)) {
-                        items.add(ItemStack.of(material));
+                        sink.accept(ItemStack.of(material));
                     }
-                    yield items;
                 }
-                case "minecraft:contents" -> block.getTag(VanillaInterface.CONTAINER_ITEMS);
-                default -> List.of();
-            };
+                case "minecraft:contents" -> block.getTag(VanillaInterface.CONTAINER_ITEMS).forEach(sink);
+                default -> {}
+            }
         }
 
         @Override
@@ -195,7 +199,11 @@ public interface LootEntry {
 
         @Override
         public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
-            return List.of();
+            return LootGenerator.collect(this, context);
+        }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
         }
 
         @Override
@@ -241,7 +249,12 @@ public interface LootEntry {
 
         @Override
         public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
-            return List.of(LootFunction.apply(functions, ItemStack.of(name), context));
+            return LootGenerator.collect(this, context);
+        }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+            sink.accept(LootFunction.apply(functions, ItemStack.of(name), context));
         }
 
         @Override
@@ -263,14 +276,27 @@ public interface LootEntry {
 
         @Override
         public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
+            return LootGenerator.collect(this, context);
+        }
+
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
             var table = switch (value) {
                 case Either.Left(Key key) -> context.vanilla().tableRegistry(key);
                 case Either.Right(net.goldenstack.loot.LootTable right) -> right;
             };
 
-            if (table == null) return List.of();
+            if (table == null) return;
 
-            return LootFunction.apply(functions, table.generate(context), context);
+            if (functions.isEmpty()) {
+                table.generateRaw(context, sink);
+                return;
+            }
+
+            // Functions are applied once the whole table is generated
+            BufferedSink buffer = new BufferedSink(functions, context, sink);
+            table.generateRaw(context, buffer);
+            buffer.flush();
         }
 
         @Override
@@ -341,7 +367,12 @@ public interface LootEntry {
 
                     @Override
                     public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
-                        return List.of(ItemStack.of(material));
+                        return LootGenerator.collect(this, context);
+                    }
+
+                    @Override
+                    public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+                        sink.accept(ItemStack.of(material));
                     }
 
                 });
@@ -352,16 +383,17 @@ public interface LootEntry {
 
         @Override
         public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
-            List<ItemStack> items = new ArrayList<>();
+            return LootGenerator.collect(this, context);
+        }
 
+        @Override
+        public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
             for (RegistryKey<Material> key : name) {
                 Material material = MinecraftServer.process().material().get(key);
                 if (material == null) continue;
 
-                items.add(LootFunction.apply(functions, ItemStack.of(material), context));
+                sink.accept(LootFunction.apply(functions, ItemStack.of(material), context));
             }
-
-            return items;
         }
 
         @Override
@@ -42,6 +42,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 /**
  * A function that allows loot to pass through it, potentially making modifications.
@@ -119,17 +120,52 @@ public interface LootFunction {
     @NotNull StructCodec<? extends LootFunction> codec();
 
     /**
-     * Applies each function to the given item consecutively.
+     * A function that can modify an {@link ItemDraft} in place, so that a chain of them only builds a single item.
+     */
+    interface Fusible extends LootFunction {
+
+        /**
+         * Performs any mutations on the provided draft.
+         * @param draft the draft of the input item to this function
+         * @param context the context object, to use if required
+         */
+        void modify(@NotNull ItemDraft draft, @NotNull LootContext context);
+
+        @Override
+        default @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
+            ItemDraft draft = new ItemDraft(input);
+            modify(draft, context);
+            return draft.build();
+        }
+    }
+
+    /**
+     * Applies each function to the given item consecutively.<br>
+     * Consecutive {@link Fusible fusible} functions share a single draft, so only one item is built for all of them.
+     * The result is exactly the same as applying each function to the result of the last.
      * @param functions the functions to apply
      * @param item the item to modify
      * @param context the context to use
      * @return the modified item
      */
     static @NotNull ItemStack apply(@NotNull Collection<LootFunction> functions, @NotNull ItemStack item, @NotNull LootContext context) {
+        // A lone function has nothing to share a draft with
+        if (functions.size() == 1) return functions.iterator().next().apply(item, context);
+
+        ItemDraft draft = null;
         for (LootFunction function : functions) {
-            item = function.apply(item, context);
+            if (function instanceof Fusible fusible) {
+                if (draft == null) draft = new ItemDraft(item);
+                fusible.modify(draft, context);
+            } else {
+                if (draft != null) {
+                    item = draft.build();
+                    draft = null;
+                }
+                item = function.apply(item, context);
+            }
         }
-        return item;
+        return draft != null ? draft.build() : item;
     }
 
     /**
@@ -147,7 +183,7 @@ public interface LootFunction {
         return newItems;
     }
 
-    record ApplyBonus(@NotNull List<LootPredicate> predicates, @NotNull RegistryKey<Enchantment> enchantment, @NotNull Formula.Wrapper formula) implements LootFunction {
+    record ApplyBonus(@NotNull List<LootPredicate> predicates, @NotNull RegistryKey<Enchantment> enchantment, @NotNull Formula.Wrapper formula) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<ApplyBonus> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), ApplyBonus::predicates,
                 "enchantment", RegistryKey.codec(Registries::enchantment), ApplyBonus::enchantment,
@@ -205,7 +241,7 @@ public interface LootFunction {
                 case UniformBonusCount ignored -> FormulaType.UNIFORM_BONUS_COUNT;
             });
 
-            int calculate(@NotNull Random random, int count, int level);
+            int calculate(@NotNull RandomGenerator random, int count, int level);
 
             record UniformBonusCount(int bonusMultiplier) implements Formula {
                 public static final @NotNull StructCodec<UniformBonusCount> CODEC = StructCodec.struct(
@@ -214,7 +250,7 @@ public interface LootFunction {
                 );
 
                 @Override
-                public int calculate(@NotNull Random random, int count, int level) {
+                public int calculate(@NotNull RandomGenerator random, int count, int level) {
                     return count + random.nextInt(bonusMultiplier * level + 1);
                 }
             }
@@ -223,7 +259,7 @@ public interface LootFunction {
                 public static final @NotNull StructCodec<OreDrops> CODEC = StructCodec.struct(OreDrops::new);
 
                 @Override
-                public int calculate(@NotNull Random random, int count, int level) {
+                public int calculate(@NotNull RandomGenerator random, int count, int level) {
                     if (level <= 0) return count;
 
                     return count * Math.max(1, random.nextInt(level + 2));
@@ -238,28 +274,22 @@ public interface LootFunction {
                 );
 
                 @Override
-                public int calculate(@NotNull Random random, int count, int level) {
-                    for (int i = 0; i < extra + level; i++) {
-                        if (random.nextFloat() < probability) {
-                            count++;
-                        }
-                    }
-
-                    return count;
+                public int calculate(@NotNull RandomGenerator random, int count, int level) {
+                    return count + BinomialSampler.sample(random, extra + level, probability);
                 }
             }
 
         }
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
             ItemStack tool = context.get(LootContext.TOOL);
-            if (tool == null) return input;
+            if (tool == null) return;
 
-            int level = EnchantmentUtils.level(tool, enchantment);
-            int newCount = formula.parameters().calculate(context.require(LootContext.RANDOM), input.amount(), level);
+            int level = EnchantmentUtils.level(context, tool, enchantment);
+            int newCount = formula.parameters().calculate(context.require(LootContext.RANDOM), draft.amount(), level);
 
-            return input.withAmount(newCount);
+            draft.amount(newCount);
         }
 
         @Override
@@ -382,7 +412,7 @@ public interface LootFunction {
         }
     }
     
-    record CopyName(@NotNull List<LootPredicate> predicates, @NotNull RelevantTarget source) implements LootFunction {
+    record CopyName(@NotNull List<LootPredicate> predicates, @NotNull RelevantTarget source) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<CopyName> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), CopyName::predicates,
                 "source", RelevantTarget.CODEC, CopyName::source,
@@ -390,8 +420,8 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
             Object key = context.get(source.key());
 
@@ -401,10 +431,10 @@ public interface LootFunction {
             } else if (key instanceof Block block && block.hasTag(VanillaInterface.CUSTOM_NAME)) {
                 customName = block.getTag(VanillaInterface.CUSTOM_NAME);
             } else {
-                return input;
+                return;
             }
 
-            return input.with(DataComponents.CUSTOM_NAME, customName);
+            draft.set(DataComponents.CUSTOM_NAME, customName);
         }
 
         @Override
@@ -413,7 +443,7 @@ public interface LootFunction {
         }
     }
 
-    record CopyState(@NotNull List<LootPredicate> predicates, @NotNull Block block, @NotNull List<String> properties) implements LootFunction {
+    record CopyState(@NotNull List<LootPredicate> predicates, @NotNull Block block, @NotNull List<String> properties) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<CopyState> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), CopyState::predicates,
                 "block", Codec.KEY.transform(Block::fromKey, Block::key), CopyState::block,
@@ -428,15 +458,15 @@ public interface LootFunction {
         }
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
             Block block = context.get(LootContext.BLOCK_STATE);
-            if (block == null) return input;
+            if (block == null) return;
 
-            ItemBlockState irritableBowelSyndrome = input.get(DataComponents.BLOCK_STATE, ItemBlockState.EMPTY);
+            ItemBlockState irritableBowelSyndrome = draft.get(DataComponents.BLOCK_STATE, ItemBlockState.EMPTY);
 
-            if (!block.key().equals(this.block.key())) return input;
+            if (!block.key().equals(this.block.key())) return;
 
             for (var prop : properties) {
                 @Nullable String value = block.getProperty(prop);
@@ -445,7 +475,7 @@ public interface LootFunction {
                 irritableBowelSyndrome = irritableBowelSyndrome.with(prop, value);
             }
 
-            return input.with(DataComponents.BLOCK_STATE, irritableBowelSyndrome);
+            draft.set(DataComponents.BLOCK_STATE, irritableBowelSyndrome);
         }
 
         @Override
@@ -455,7 +485,7 @@ public interface LootFunction {
     }
 
     record EnchantedCountIncrease(@NotNull List<LootPredicate> predicates, @NotNull RegistryKey<Enchantment> enchantment,
-                                  @NotNull LootNumber count, @Nullable Integer limit) implements LootFunction {
+                                  @NotNull LootNumber count, @Nullable Integer limit) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<EnchantedCountIncrease> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), EnchantedCountIncrease::predicates,
                 "enchantment", RegistryKey.codec(Registries::enchantment), EnchantedCountIncrease::enchantment,
@@ -465,17 +495,17 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
             Entity attacker = context.get(LootContext.ATTACKING_ENTITY);
-            int level = EnchantmentUtils.level(attacker, enchantment);
+            int level = EnchantmentUtils.level(context, attacker, enchantment);
 
-            if (level == 0) return input;
+            if (level == 0) return;
 
-            int newAmount = input.amount() + level * count.getInt(context);
+            int newAmount = draft.amount() + level * count.getInt(context);
 
-            return input.withAmount(limit != null ? Math.min(limit, newAmount) : newAmount);
+            draft.amount(limit != null ? Math.min(limit, newAmount) : newAmount);
         }
 
         @Override
@@ -505,7 +535,7 @@ public interface LootFunction {
 
             if (values.isEmpty()) return input;
 
-            Random rng = context.require(LootContext.RANDOM);
+            RandomGenerator rng = context.require(LootContext.RANDOM);
 
             RegistryKey<Enchantment> chosen = values.get(rng.nextInt(values.size()));
 
@@ -561,33 +591,25 @@ public interface LootFunction {
         }
     }
 
-    record ExplosionDecay(@NotNull List<LootPredicate> predicates) implements LootFunction {
+    record ExplosionDecay(@NotNull List<LootPredicate> predicates) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<ExplosionDecay> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), ExplosionDecay::predicates,
                 ExplosionDecay::new
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
             Float radius = context.get(LootContext.EXPLOSION_RADIUS);
-            if (radius == null) return input;
+            if (radius == null) return;
 
-            Random random = context.require(LootContext.RANDOM);
+            RandomGenerator random = context.require(LootContext.RANDOM);
 
             float chance = 1 / radius;
-            int trials = input.amount();
+            int trials = draft.amount();
 
-            int newAmount = 0;
-
-            for (int i = 0; i < trials; i++) {
-                if (random.nextFloat() <= chance) {
-                    newAmount++;
-                }
-            }
-
-            return input.withAmount(newAmount);
+            draft.amount(BinomialSampler.sample(random, trials, chance));
         }
 
         @Override
@@ -664,7 +686,7 @@ public interface LootFunction {
         }
     }
 
-    record LimitCount(@NotNull List<LootPredicate> predicates, @NotNull LootNumberRange limit) implements LootFunction {
+    record LimitCount(@NotNull List<LootPredicate> predicates, @NotNull LootNumberRange limit) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<LimitCount> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), LimitCount::predicates,
                 "limit", LootNumberRange.CODEC, LimitCount::limit,
@@ -672,9 +694,9 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
-            return input.withAmount(i -> (int) limit.limit(context, i));
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
+            draft.amount((int) limit.limit(context, draft.amount()));
         }
 
         @Override
@@ -713,18 +735,29 @@ public interface LootFunction {
         }
     }
 
-    record Reference(@NotNull List<LootPredicate> predicates, @NotNull Key name) implements LootFunction {
+    /**
+     * A function that refers to another function by name.
+     * @param predicates the predicates that must pass for the referenced function to be applied
+     * @param name the name of the referenced function
+     * @param resolved the referenced function, if it has already been resolved while linking, or null if it should be
+     *                 looked up from the registry on each use
+     */
+    record Reference(@NotNull List<LootPredicate> predicates, @NotNull Key name, @Nullable LootFunction resolved) implements LootFunction {
         public static final @NotNull StructCodec<Reference> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), Reference::predicates,
                 "name", Codec.KEY, Reference::name,
                 Reference::new
         );
 
+        public Reference(@NotNull List<LootPredicate> predicates, @NotNull Key name) {
+            this(predicates, name, null);
+        }
+
         @Override
         public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
             if (!LootPredicate.all(predicates, context)) return input;
 
-            LootFunction function = context.vanilla().functionRegistry(name);
+            LootFunction function = resolved != null ? resolved : context.vanilla().functionRegistry(name);
 
             return function != null ? function.apply(input, context) : input;
         }
@@ -866,7 +899,7 @@ public interface LootFunction {
         }
     }
 
-    record SetComponents(@NotNull List<LootPredicate> predicates, @NotNull DataComponentMap changes) implements LootFunction {
+    record SetComponents(@NotNull List<LootPredicate> predicates, @NotNull DataComponentMap changes) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<SetComponents> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), SetComponents::predicates,
                 "components", DataComponent.PATCH_CODEC, SetComponents::changes,
@@ -874,22 +907,23 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
-
-            ItemStack.Builder builder = input.builder();
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
             // This and .constantGeneric are hacks for until there exists a way to apply a patch to an item
             for (DataComponent.Value entry : changes.entrySet()) {
-                constantGeneric(builder, entry.component(), entry.value());
+                constantGeneric(draft, entry.component(), entry.value());
             }
-
-            return builder.build();
         }
 
         @SuppressWarnings("unchecked")
-        private static <T> void constantGeneric(@NotNull ItemStack.Builder builder, @NotNull DataComponent<T> key, Object value) {
-            builder.set(key, (T) value);
+        private static <T> void constantGeneric(@NotNull ItemDraft draft, @NotNull DataComponent<T> key, Object value) {
+            // Patches store removed components as null values
+            if (value == null) {
+                draft.remove(key);
+            } else {
+                draft.set(key, (T) value);
+            }
         }
 
         @Override
@@ -915,7 +949,7 @@ public interface LootFunction {
 
             for (LootEntry entry : entries) {
                 for (LootEntry.Choice choice : entry.requestChoices(context)) {
-                    contents.addAll(choice.generate(context));
+                    choice.generate(context, contents::add);
                 }
             }
 
@@ -928,7 +962,7 @@ public interface LootFunction {
         }
     }
 
-    record SetCount(@NotNull List<LootPredicate> predicates, @NotNull LootNumber count, boolean add) implements LootFunction {
+    record SetCount(@NotNull List<LootPredicate> predicates, @NotNull LootNumber count, boolean add) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<SetCount> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), SetCount::predicates,
                 "count", LootNumber.CODEC, SetCount::count,
@@ -937,9 +971,9 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
-            return input.withAmount(amount -> (this.add ? amount : 0) + this.count.getInt(context));
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
+            draft.amount((this.add ? draft.amount() : 0) + this.count.getInt(context));
         }
 
         @Override
@@ -948,7 +982,7 @@ public interface LootFunction {
         }
     }
 
-    record SetCustomData(@NotNull List<LootPredicate> predicates, @NotNull CompoundBinaryTag tag) implements LootFunction {
+    record SetCustomData(@NotNull List<LootPredicate> predicates, @NotNull CompoundBinaryTag tag) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<SetCustomData> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), SetCustomData::predicates,
                 "tag", Codec.STRING.transform(s -> {
@@ -962,10 +996,10 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
-            return input.with(DataComponents.CUSTOM_DATA, new CustomData(tag));
+            draft.set(DataComponents.CUSTOM_DATA, new CustomData(tag));
         }
 
         @Override
@@ -996,7 +1030,7 @@ public interface LootFunction {
         }
     }
 
-    record SetDamage(@NotNull List<LootPredicate> predicates, @NotNull LootNumber damage, boolean add) implements LootFunction {
+    record SetDamage(@NotNull List<LootPredicate> predicates, @NotNull LootNumber damage, boolean add) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<SetDamage> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), SetDamage::predicates,
                 "damage", LootNumber.CODEC, SetDamage::damage,
@@ -1005,20 +1039,20 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
-            int maxDamage = input.get(DataComponents.MAX_DAMAGE, -1);
-            if (maxDamage == -1) return input;
+            int maxDamage = draft.get(DataComponents.MAX_DAMAGE, -1);
+            if (maxDamage == -1) return;
 
-            double damage = input.get(DataComponents.DAMAGE, 0) / (double) maxDamage;
+            double damage = draft.get(DataComponents.DAMAGE, 0) / (double) maxDamage;
 
             double currentDura = add ? 1 - damage : 0;
             double newDura = Math.max(0, Math.min(1, currentDura + this.damage.getDouble(context)));
 
             double newDamage = 1 - newDura;
 
-            return input.with(DataComponents.DAMAGE, (int) Math.floor(newDamage * maxDamage));
+            draft.set(DataComponents.DAMAGE, (int) Math.floor(newDamage * maxDamage));
         }
 
         @Override
@@ -1170,7 +1204,7 @@ public interface LootFunction {
         }
     }
 
-    record SetLootTable(@NotNull List<LootPredicate> predicates, @NotNull Key name, long seed) implements LootFunction {
+    record SetLootTable(@NotNull List<LootPredicate> predicates, @NotNull Key name, long seed) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<SetLootTable> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), SetLootTable::predicates,
                 "name", Codec.KEY, SetLootTable::name,
@@ -1179,11 +1213,11 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
-            if (input.isAir()) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
+            if (draft.isAir()) return;
 
-            return input.with(DataComponents.CONTAINER_LOOT, new SeededContainerLoot(name.asString(), seed));
+            draft.set(DataComponents.CONTAINER_LOOT, new SeededContainerLoot(name.asString(), seed));
         }
 
         @Override
@@ -1193,7 +1227,7 @@ public interface LootFunction {
     }
 
     record SetLore(@NotNull List<LootPredicate> predicates, @NotNull List<Component> lore,
-                   @NotNull ListOperation operation, @Nullable RelevantEntity entity) implements LootFunction {
+                   @NotNull ListOperation operation, @Nullable RelevantEntity entity) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<SetLore> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), SetLore::predicates,
                 "lore", Codec.COMPONENT.list(), SetLore::lore,
@@ -1203,16 +1237,16 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
-            List<Component> components = input.get(DataComponents.LORE, List.of());
+            List<Component> components = draft.get(DataComponents.LORE, List.of());
 
             // TODO: Incomplete
             // TODO: https://minecraft.wiki/w/Raw_JSON_text_format#Component_resolution
             //       This is not used in vanilla so it's fine for now.
 
-            return input.with(DataComponents.LORE, operation.apply(lore, components));
+            draft.set(DataComponents.LORE, operation.apply(lore, components));
         }
 
         @Override
@@ -1222,7 +1256,7 @@ public interface LootFunction {
     }
 
     record SetName(@NotNull List<LootPredicate> predicates, @Nullable Component name,
-                   @Nullable RelevantEntity entity, @NotNull Target target) implements LootFunction {
+                   @Nullable RelevantEntity entity, @NotNull Target target) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<SetName> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), SetName::predicates,
                 "name", Codec.COMPONENT.optional(), SetName::name,
@@ -1255,17 +1289,17 @@ public interface LootFunction {
         }
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
-            if (name == null) return input;
+            if (name == null) return;
 
             Component component = this.name;
             // TODO: Incomplete
             // TODO: https://minecraft.wiki/w/Raw_JSON_text_format#Component_resolution
             //       This is not used in vanilla so it's fine for now.
 
-            return input.with(target.component(), component);
+            draft.set(target.component(), component);
         }
 
         @Override
@@ -1274,7 +1308,7 @@ public interface LootFunction {
         }
     }
 
-    record SetOminousBottleAmplifier(@NotNull List<LootPredicate> predicates, @NotNull LootNumber amplifier) implements LootFunction {
+    record SetOminousBottleAmplifier(@NotNull List<LootPredicate> predicates, @NotNull LootNumber amplifier) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<SetOminousBottleAmplifier> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), SetOminousBottleAmplifier::predicates,
                 "amplifier", LootNumber.CODEC, SetOminousBottleAmplifier::amplifier,
@@ -1282,12 +1316,12 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
             int amplifier = Math.max(0, Math.min(this.amplifier.getInt(context), 4));
 
-            return input.with(DataComponents.OMINOUS_BOTTLE_AMPLIFIER, amplifier);
+            draft.set(DataComponents.OMINOUS_BOTTLE_AMPLIFIER, amplifier);
         }
 
         @Override
@@ -1296,7 +1330,7 @@ public interface LootFunction {
         }
     }
 
-    record SetPotion(@NotNull List<LootPredicate> predicates, @NotNull Key id) implements LootFunction {
+    record SetPotion(@NotNull List<LootPredicate> predicates, @NotNull Key id) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<SetPotion> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), SetPotion::predicates,
                 "id", Codec.KEY, SetPotion::id,
@@ -1304,17 +1338,18 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
             if (id.asString().equals("minecraft:empty")) {
-                return input.without(DataComponents.POTION_CONTENTS);
+                draft.remove(DataComponents.POTION_CONTENTS);
+                return;
             }
 
-            PotionContents existing = input.get(DataComponents.POTION_CONTENTS, PotionContents.EMPTY);
+            PotionContents existing = draft.get(DataComponents.POTION_CONTENTS, PotionContents.EMPTY);
             PotionContents updated = new PotionContents(PotionType.fromKey(id), existing.customColor(), existing.customEffects());
 
-            return input.with(DataComponents.POTION_CONTENTS, updated);
+            draft.set(DataComponents.POTION_CONTENTS, updated);
         }
 
         @Override
@@ -1427,7 +1462,7 @@ public interface LootFunction {
         }
     }
     
-    record ToggleTooltips(@NotNull List<LootPredicate> predicates, @NotNull Map<DataComponent<?>, Boolean> toggles) implements LootFunction {
+    record ToggleTooltips(@NotNull List<LootPredicate> predicates, @NotNull Map<DataComponent<?>, Boolean> toggles) implements LootFunction.Fusible {
         public static final @NotNull StructCodec<ToggleTooltips> CODEC = StructCodec.struct(
                 "conditions", LootPredicate.CODEC.list().optional(List.of()), ToggleTooltips::predicates,
                 "toggles", DataComponent.CODEC.mapValue(StructCodec.BOOLEAN), ToggleTooltips::toggles,
@@ -1435,16 +1470,16 @@ public interface LootFunction {
         );
 
         @Override
-        public @NotNull ItemStack apply(@NotNull ItemStack input, @NotNull LootContext context) {
-            if (!LootPredicate.all(predicates, context)) return input;
+        public void modify(@NotNull ItemDraft draft, @NotNull LootContext context) {
+            if (!LootPredicate.all(predicates, context)) return;
 
-            TooltipDisplay display = input.get(DataComponents.TOOLTIP_DISPLAY, TooltipDisplay.EMPTY);
+            TooltipDisplay display = draft.get(DataComponents.TOOLTIP_DISPLAY, TooltipDisplay.EMPTY);
 
             for (var entry : toggles.entrySet()) {
                 display = entry.getValue() ? display.with(entry.getKey()) : display.without(entry.getKey());
             }
 
-            return input.with(DataComponents.TOOLTIP_DISPLAY, display);
+            draft.set(DataComponents.TOOLTIP_DISPLAY, display);
         }
 
         @Override
@@ -5,25 +5,77 @@ import net.minestom.server.instance.Instance;
 import net.minestom.server.item.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 /**
- * Something that can generate loot.
+ * Something that can generate loot.<br>
+ * Implementations only have to provide {@link #generate(LootContext)}. Implementations that can stream their items
+ * should also override {@link #generate(LootContext, Consumer)}, implementing the list variant with
+ * {@link #collect(LootGenerator, LootContext)}, so that generating into a sink never builds a list.
  */
 public interface LootGenerator {
 
+    /**
+     * Generates loot, collecting the items into a list.
+     * @param context the context object, to use if required
+     * @return the generated items
+     */
     @NotNull List<ItemStack> generate(@NotNull LootContext context);
 
+    /**
+     * Generates loot, passing each item to the provided sink instead of collecting them.<br>
+     * By default, this passes each item of {@link #generate(LootContext)} to the sink.
+     * @param context the context object, to use if required
+     * @param sink the consumer to pass each generated item to
+     */
+    default void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        generate(context).forEach(sink);
+    }
+
+    /**
+     * Collects the items that the provided generator passes to a sink into a list. Generators that override
+     * {@link #generate(LootContext, Consumer)} can implement {@link #generate(LootContext)} with this.
+     * @param generator the generator to collect the items of
+     * @param context the context object, to use if required
+     * @return the generated items
+     */
+    static @NotNull List<ItemStack> collect(@NotNull LootGenerator generator, @NotNull LootContext context) {
+        List<ItemStack> items = new ArrayList<>();
+        generator.generate(context, items::add);
+        return items;
+    }
+
+    /**
+     * Generates loot many times in parallel on the provided pool, for simulations and pregeneration. Each generation
+     * uses the provided context with its own {@link LootContext#RANDOM random number generator}, derived from the root
+     * seed and the index of the generation, so the results are reproducible regardless of the number of threads.<br>
+     * These per-generation generators always take precedence over {@link LootContext#RANDOM_SEQUENCES random
+     * sequences}, which are removed from the context: a sequence is a single generator that can't be shared between
+     * threads, and drawing from it would make the results depend on scheduling.<br>
+     * The sink is called from multiple threads at once, and must be thread-safe. This method returns once every
+     * generation is complete.
+     * @param context the context to generate loot with, excluding the random number generator
+     * @param count the number of times to generate loot
+     * @param seed the root seed to derive each generation's random number generator from
+     * @param pool the pool to generate loot on
+     * @param sink the consumer to pass each generated item and the index of its generation to
+     */
+    default void generateBulk(@NotNull LootContext context, int count, long seed, @NotNull ForkJoinPool pool,
+                              @NotNull ObjIntConsumer<ItemStack> sink) {
+        LootContext unsequenced = LootContextImpl.without(context, LootContext.RANDOM_SEQUENCES);
+        pool.invoke(new BulkGeneration(this, unsequenced, seed, 0, count, sink));
+    }
+
     default void blockDrop(@NotNull LootContext context, @NotNull Instance instance, @NotNull Point block) {
-        for (ItemStack item : generate(context)) {
-            Trove.blockDrop(instance, item, block);
-        }
+        generate(context, item -> Trove.blockDrop(instance, item, block));
     }
 
     default void drop(@NotNull LootContext context, @NotNull Instance instance, @NotNull Point pos) {
-        for (ItemStack item : generate(context)) {
-            Trove.drop(instance, item, pos);
-        }
+        generate(context, item -> Trove.drop(instance, item, pos));
     }
 
 }
@@ -59,7 +59,7 @@ public interface LootNBT {
 
         @Override
         public @Nullable BinaryTag getNBT(@NotNull LootContext context) {
-            return context.vanilla().commandStorage(source);
+            return context.memoize(LootContext.Memo.COMMAND_STORAGE, null, source);
         }
 
         @Override
@@ -115,7 +115,7 @@ public interface LootNBT {
                 public @NotNull BinaryTag getNBT(@NotNull LootContext context) {
                     var entity = context.require(target.key());
 
-                    return context.vanilla().serializeEntity(entity);
+                    return context.memoize(LootContext.Memo.ENTITY_NBT, entity, null);
                 }
 
                 @Override
@@ -1,5 +1,6 @@
 package net.goldenstack.loot;
 
+import net.goldenstack.loot.util.BinomialSampler;
 import net.goldenstack.loot.util.nbt.NBTPath;
 import net.goldenstack.loot.util.nbt.NBTReference;
 import net.kyori.adventure.key.Key;
@@ -13,7 +14,7 @@ import net.minestom.server.registry.DynamicRegistry;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Generates numbers based on provided loot contexts.
@@ -71,15 +72,9 @@ public interface LootNumber {
         public int getInt(@NotNull LootContext context) {
             int trials = trials().getInt(context);
             double probability = probability().getDouble(context);
-            Random random = context.require(LootContext.RANDOM);
+            RandomGenerator random = context.require(LootContext.RANDOM);
 
-            int successes = 0;
-            for (int trial = 0; trial < trials; trial++) {
-                if (random.nextDouble() < probability) {
-                    successes++;
-                }
-            }
-            return successes;
+            return BinomialSampler.sample(random, trials, probability);
         }
 
         @Override
@@ -181,7 +176,7 @@ public interface LootNumber {
         }
 
         private NumberBinaryTag get(@NotNull LootContext context) {
-            CompoundBinaryTag compound = context.vanilla().commandStorage(storage);
+            CompoundBinaryTag compound = context.memoize(LootContext.Memo.COMMAND_STORAGE, null, storage);
 
             List<NBTReference> refs = path.get(compound != null ? compound : CompoundBinaryTag.empty());
             if (refs.size() != 1) return IntBinaryTag.intBinaryTag(0);
@@ -7,6 +7,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A loot pool.
@@ -34,7 +35,12 @@ public record LootPool(@NotNull LootNumber rolls,
 
     @Override
     public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
-        if (!(LootPredicate.all(predicates, context))) return List.of();
+        return LootGenerator.collect(this, context);
+    }
+
+    @Override
+    public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        if (!(LootPredicate.all(predicates, context))) return;
 
         int rolls = this.rolls.getInt(context);
 
@@ -43,16 +49,17 @@ public record LootPool(@NotNull LootNumber rolls,
             rolls += (int) Math.floor(luck * this.bonusRolls.getDouble(context));
         }
 
-        List<ItemStack> items = new ArrayList<>();
+        // Functions are applied once every roll is done, so they draw their random numbers after all of the rolls
+        BufferedSink buffer = functions.isEmpty() ? null : new BufferedSink(functions, context, sink);
 
         for (int i = 0; i < rolls; i++) {
             LootEntry.Choice choice = pickChoice(entries, context);
             if (choice == null) continue;
 
-            items.addAll(choice.generate(context));
+            choice.generate(context, buffer != null ? buffer : sink);
         }
 
-        return LootFunction.apply(functions, items, context);
+        if (buffer != null) buffer.flush();
     }
     
     /**
@@ -233,7 +233,7 @@ public interface LootPredicate extends Predicate<@NotNull LootContext> {
             if (entity == null) return false;
 
             for (var entry : scores.entrySet()) {
-                Integer score = context.vanilla().score(entity, entry.getKey());
+                Integer score = context.memoize(LootContext.Memo.ENTITY_SCORE, entity, entry.getKey());
                 if (score == null || !entry.getValue().check(context, score)) {
                     return false;
                 }
@@ -355,7 +355,7 @@ public interface LootPredicate extends Predicate<@NotNull LootContext> {
         public boolean test(@NotNull LootContext context) {
             Entity attacker = context.get(LootContext.ATTACKING_ENTITY);
 
-            int level = EnchantmentUtils.level(attacker, enchantment);
+            int level = EnchantmentUtils.level(context, attacker, enchantment);
 
             float chance = level > 0 ? enchantedChance.calc(level) : unenchantedChance;
             return context.require(LootContext.RANDOM).nextFloat() < chance;
@@ -367,15 +367,25 @@ public interface LootPredicate extends Predicate<@NotNull LootContext> {
         }
     }
 
-    record Reference(@NotNull Key name) implements LootPredicate {
+    /**
+     * A predicate that refers to another predicate by name.
+     * @param name the name of the referenced predicate
+     * @param resolved the referenced predicate, if it has already been resolved while linking, or null if it should be
+     *                 looked up from the registry on each use
+     */
+    record Reference(@NotNull Key name, @Nullable LootPredicate resolved) implements LootPredicate {
         public static final @NotNull StructCodec<Reference> CODEC = StructCodec.struct(
                 "name", Codec.KEY, Reference::name,
                 Reference::new
         );
 
+        public Reference(@NotNull Key name) {
+            this(name, null);
+        }
+
         @Override
         public boolean test(@NotNull LootContext context) {
-            LootPredicate predicate = context.vanilla().predicateRegistry(name);
+            LootPredicate predicate = resolved != null ? resolved : context.vanilla().predicateRegistry(name);
 
             return predicate != null && predicate.test(context);
         }
@@ -412,7 +422,7 @@ public interface LootPredicate extends Predicate<@NotNull LootContext> {
         public boolean test(@NotNull LootContext context) {
             ItemStack tool = context.get(LootContext.TOOL);
 
-            int level = EnchantmentUtils.level(tool, enchantment);
+            int level = EnchantmentUtils.level(context, tool, enchantment);
 
             float chance = chances.get(Math.min(this.chances.size() - 1, level));
 
@@ -46,7 +46,7 @@ public interface LootScore extends Function<@NotNull LootContext, Function<@NotN
 
         @Override
         public @NotNull Function<@NotNull String, @Nullable Integer> apply(@NotNull LootContext context) {
-            return objective -> context.vanilla().score(context.require(name.key()), objective);
+            return objective -> context.memoize(LootContext.Memo.ENTITY_SCORE, context.require(name.key()), objective);
         }
 
         @Override
@@ -63,7 +63,7 @@ public interface LootScore extends Function<@NotNull LootContext, Function<@NotN
 
         @Override
         public @NotNull Function<@NotNull String, @Nullable Integer> apply(@NotNull LootContext context) {
-            return objective -> context.vanilla().score(name, objective);
+            return objective -> context.memoize(LootContext.Memo.NAME_SCORE, name, objective);
         }
 
         @Override
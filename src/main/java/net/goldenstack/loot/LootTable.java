@@ -7,16 +7,20 @@ import net.minestom.server.item.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 /**
  * A loot table.
  * @param pools the pools that generate items in this table
  * @param functions the functions applied to each output item of this table
  * @param randomSequence An ID specifying the name of the random sequence that is used to generate loot from this loot table.
+ * @param type the parameters that contexts generating this table must or may have, or null if they aren't checked
  */
-public record LootTable(@NotNull List<LootPool> pools, @NotNull List<LootFunction> functions, @Nullable Key randomSequence) implements LootGenerator {
+public record LootTable(@NotNull List<LootPool> pools, @NotNull List<LootFunction> functions, @Nullable Key randomSequence,
+                        @Nullable LootContextType type) implements LootGenerator {
 
     public static final @NotNull LootTable EMPTY = new LootTable(List.of(), List.of(), null);
 
@@ -25,19 +29,76 @@ public record LootTable(@NotNull List<LootPool> pools, @NotNull List<LootFunctio
             "pools", LootPool.CODEC.list().optional(List.of()), LootTable::pools,
             "functions", LootFunction.CODEC.list().optional(List.of()), LootTable::functions,
             "random_sequence", Codec.KEY.optional(), LootTable::randomSequence,
+            "type", LootContextType.CODEC.optional(), LootTable::type,
             LootTable::new
     );
 
+    public LootTable(@NotNull List<LootPool> pools, @NotNull List<LootFunction> functions, @Nullable Key randomSequence) {
+        this(pools, functions, randomSequence, null);
+    }
+
+    /**
+     * Compiles this table into a flat evaluation plan, which generates the same loot with far fewer virtual calls and
+     * allocations. Compiling takes time, so the result should be kept and reused.
+     * @return the compiled table
+     */
+    public @NotNull CompiledLootTable compile() {
+        return CompiledLootTable.compile(this);
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * If this table has a random sequence and the context has {@link LootContext#RANDOM_SEQUENCES random sequences},
+     * the table's sequence is used as the random number generator instead of the context's.
+     * @throws java.util.NoSuchElementException if this table has a type and the context is missing any of its required
+     *                                          parameters
+     */
     @Override
     public @NotNull List<ItemStack> generate(@NotNull LootContext context) {
-        List<ItemStack> items = new ArrayList<>();
+        return LootGenerator.collect(this, context);
+    }
+
+    @Override
+    public void generate(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        if (type != null) type.validate(context);
+
+        generateRaw(LootContextImpl.scoped(sequenced(context)), sink);
+    }
+
+    /**
+     * Returns the provided context with its random number generator replaced with this table's random sequence, if
+     * both this table and the context have one.
+     */
+    @NotNull LootContext sequenced(@NotNull LootContext context) {
+        if (randomSequence == null) return context;
+
+        RandomSequences sequences = context.get(LootContext.RANDOM_SEQUENCES);
+        return sequences != null ? context.with(LootContext.RANDOM, sequences.get(randomSequence)) : context;
+    }
+
+    /**
+     * Generates loot with the provided context as is, ignoring this table's random sequence. Tables nested inside other
+     * tables are generated like this, so they share the random number generator of the outermost table.
+     */
+    void generateRaw(@NotNull LootContext context, @NotNull Consumer<ItemStack> sink) {
+        // Functions are applied to the items of each pool once that pool is done
+        BufferedSink buffer = functions.isEmpty() ? null : new BufferedSink(functions, context, sink);
 
         for (var pool : pools) {
-            for (var item : pool.generate(context)) {
-                items.add(LootFunction.apply(functions, item, context));
-            }
+            pool.generate(context, buffer != null ? buffer : sink);
+
+            if (buffer != null) buffer.flush();
         }
+    }
 
-        return items;
+    /**
+     * {@inheritDoc}<br>
+     * This table is compiled once per call, and the compiled table is used for every generation. Callers that run bulk
+     * generations repeatedly should keep the result of {@link #compile()} and call this on it instead.
+     */
+    @Override
+    public void generateBulk(@NotNull LootContext context, int count, long seed, @NotNull ForkJoinPool pool,
+                             @NotNull ObjIntConsumer<ItemStack> sink) {
+        compile().generateBulk(context, count, seed, pool, sink);
     }
 }
@@ -0,0 +1,125 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.LootNumberRange;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reorders lists of predicates so that cheaper predicates are tested first.<br>
+ * Every list of predicates is either required to all pass or required to have any pass, so changing the order of
+ * predicates without side effects can't change the result, only how much work is done before short-circuiting.
+ * Predicates that consume random numbers do have side effects, though, since skipping them changes the numbers that
+ * everything after them receives. These predicates are never moved, and nothing is moved across them, so seeded output
+ * stays exactly the same.
+ */
+final class PredicateOrder {
+
+    /**
+     * The cost of predicates that must not be moved.
+     */
+    static final int FIXED = -1;
+
+    private PredicateOrder() {}
+
+    /**
+     * Returns the provided predicates in order of increasing estimated cost, keeping predicates that can't be moved in
+     * place. Predicates with the same cost keep their relative order.
+     * @param predicates the predicates to reorder
+     * @return the reordered predicates, or the same list if nothing was moved
+     */
+    static @NotNull List<LootPredicate> reorder(@NotNull List<LootPredicate> predicates) {
+        if (predicates.size() < 2) return predicates;
+
+        int[] costs = new int[predicates.size()];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = cost(predicates.get(i));
+        }
+
+        List<Integer> order = new ArrayList<>(costs.length);
+        List<Integer> run = new ArrayList<>();
+        for (int i = 0; i <= costs.length; i++) {
+            if (i == costs.length || costs[i] == FIXED) {
+                run.sort(Comparator.comparingInt(index -> costs[index]));
+                order.addAll(run);
+                run.clear();
+                if (i != costs.length) order.add(i);
+            } else {
+                run.add(i);
+            }
+        }
+
+        boolean moved = false;
+        for (int i = 0; i < order.size(); i++) {
+            moved |= order.get(i) != i;
+        }
+        if (!moved) return predicates;
+
+        return order.stream().map(predicates::get).toList();
+    }
+
+    /**
+     * Estimates the relative cost of testing the provided predicate, based on how much of the world it has to look at.
+     * @param predicate the predicate to estimate
+     * @return the estimated cost, or {@link #FIXED} if the predicate may consume random numbers (or is unknown)
+     */
+    static int cost(@NotNull LootPredicate predicate) {
+        return switch (predicate) {
+            case LootPredicate.AllOf allOf -> sum(allOf.terms());
+            case LootPredicate.AnyOf anyOf -> sum(anyOf.terms());
+            case LootPredicate.Inverted inverted -> cost(inverted.term());
+            case LootPredicate.Reference reference -> reference.resolved() == null ? FIXED : cost(reference.resolved());
+            case LootPredicate.KilledByPlayer killedByPlayer -> 1;
+            case LootPredicate.EnchantmentActiveCheck enchantmentActiveCheck -> 1;
+            case LootPredicate.WeatherCheck weatherCheck -> 2;
+            case LootPredicate.TimeCheck timeCheck -> add(2, cost(timeCheck.value()));
+            case LootPredicate.ValueCheck valueCheck -> add(cost(valueCheck.value()), cost(valueCheck.range()));
+            case LootPredicate.BlockStateProperty blockStateProperty -> 4;
+            case LootPredicate.MatchTool matchTool -> 8;
+            case LootPredicate.DamageSourceProperties damageSourceProperties -> 16;
+            case LootPredicate.EntityScores entityScores -> {
+                int cost = 16;
+                for (LootNumberRange range : entityScores.scores().values()) {
+                    cost = add(cost, cost(range));
+                }
+                yield cost;
+            }
+            case LootPredicate.EntityProperties entityProperties -> 32;
+            case LootPredicate.LocationCheck locationCheck -> 32;
+            // Random chances, explosions, table bonuses, and any custom predicates
+            default -> FIXED;
+        };
+    }
+
+    private static int cost(@Nullable LootNumber number) {
+        return switch (number) {
+            case null -> 0;
+            case LootNumber.Constant constant -> 0;
+            case LootNumber.EnchantmentLevel level -> 2;
+            case LootNumber.Score score -> 8;
+            case LootNumber.Storage storage -> 8;
+            // Binomial and uniform numbers, and any custom numbers
+            default -> FIXED;
+        };
+    }
+
+    private static int cost(@NotNull LootNumberRange range) {
+        return add(cost(range.min()), cost(range.max()));
+    }
+
+    private static int sum(@NotNull List<LootPredicate> predicates) {
+        int cost = 0;
+        for (LootPredicate predicate : predicates) {
+            cost = add(cost, cost(predicate));
+        }
+        return cost;
+    }
+
+    private static int add(int a, int b) {
+        return a == FIXED || b == FIXED ? FIXED : a + b;
+    }
+
+}
@@ -0,0 +1,79 @@
+package net.goldenstack.loot;
+
+import net.kyori.adventure.key.Key;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * The random sequences of a world, which give each loot table with a {@link LootTable#randomSequence() random sequence}
+ * its own stream of random numbers, like in vanilla.<br>
+ * Each sequence is seeded from the world seed and its key alone, so the loot generated by a table only depends on the
+ * world seed and how many times the sequence has been used, regardless of what other tables have generated.<br>
+ * Sequences use a fast generator without any synchronization, so each sequence should only be used by one thread at a
+ * time (for example, the tick thread of the instance that the sequences belong to).
+ * @see LootContext#RANDOM_SEQUENCES
+ */
+public final class RandomSequences {
+
+    private static final @NotNull RandomGeneratorFactory<?> FACTORY = RandomGeneratorFactory.of("Xoroshiro128PlusPlus");
+
+    private final long seed;
+    private final @NotNull Map<Key, RandomGenerator> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new set of random sequences for a world with the provided seed.
+     * @param seed the seed of the world
+     */
+    public RandomSequences(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return the world seed that the sequences are derived from
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Returns the sequence with the provided key, creating it if it doesn't exist yet.
+     * @param key the key of the sequence
+     * @return the random number generator of the sequence
+     */
+    public @NotNull RandomGenerator get(@NotNull Key key) {
+        return sequences.computeIfAbsent(key, this::create);
+    }
+
+    /**
+     * Resets the sequence with the provided key, so that it starts over from the beginning the next time it's used.
+     * @param key the key of the sequence to reset
+     */
+    public void reset(@NotNull Key key) {
+        sequences.remove(key);
+    }
+
+    private @NotNull RandomGenerator create(@NotNull Key key) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("MD5").digest(key.asString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(hash);
+        long high = buffer.getLong(0) ^ seed;
+        long low = buffer.getLong(8) ^ seed;
+
+        byte[] state = ByteBuffer.allocate(16).putLong(high).putLong(low).array();
+        return FACTORY.create(state);
+    }
+
+}
@@ -0,0 +1,124 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.Records;
+import net.kyori.adventure.key.Key;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Shares identical parts of decoded loot tables.<br>
+ * Many tables contain the same predicates, functions, numbers, and entries (for example, nearly every block table has a
+ * {@code survives_explosion} condition). Since all of these are records, equal parts are interchangeable, so interning
+ * replaces every part with a single canonical instance and lets the duplicates be garbage collected.<br>
+ * Parts are only considered identical if their maps also iterate in the same order, even though maps that only differ
+ * in order are equal. Some maps, like the enchantments of {@code set_enchantments}, are read in order while drawing
+ * random numbers, so sharing them could change seeded output depending on which other tables were interned.
+ */
+public final class TableInterner {
+
+    private final @NotNull Map<Node, Object> canonical = new HashMap<>();
+
+    private long nodes;
+    private long bytesSaved;
+
+    /**
+     * Interns every part of the provided tables, returning the tables with shared parts along with statistics about
+     * how much was shared.
+     * @param tables the tables to intern
+     * @return the interned tables and statistics
+     */
+    public static @NotNull Result intern(@NotNull Map<Key, LootTable> tables) {
+        TableInterner interner = new TableInterner();
+
+        Map<Key, LootTable> interned = new LinkedHashMap<>();
+        for (var entry : tables.entrySet()) {
+            interned.put(entry.getKey(), interner.intern(entry.getValue()));
+        }
+
+        return new Result(interned, interner.nodes, interner.canonical.size(), interner.bytesSaved);
+    }
+
+    /**
+     * Creates a new interner with no canonical instances. Interners may be reused to share parts between tables that
+     * are loaded at different times, but are not thread-safe.
+     */
+    public TableInterner() {}
+
+    /**
+     * Interns every part of the provided value, which is usually a table or part of one, against every part interned
+     * by this interner so far.<br>
+     * Only the canonical instances are kept between calls, so the provided value can be garbage collected afterward.
+     * @param value the value to intern
+     * @return the interned value, which is equal to the provided one
+     * @param <T> the type of the value
+     */
+    public <T> @NotNull T intern(@NotNull T value) {
+        return Records.rewrite(value, this::canonicalize);
+    }
+
+    private @NotNull Object canonicalize(@NotNull Object node) {
+        nodes++;
+
+        Object existing = canonical.putIfAbsent(new Node(node), node);
+        if (existing == null) return node;
+
+        bytesSaved += Records.shallowSize(node);
+        return existing;
+    }
+
+    /**
+     * A node compared by its class and its children, in order. Nodes are interned from the bottom up, so children that
+     * are themselves traversed are already canonical and are compared by identity, while every other child is compared
+     * with {@link Object#equals(Object)}.
+     */
+    private static final class Node {
+
+        private final @NotNull Object value;
+        private final @NotNull List<Object> children;
+        private final int hash;
+
+        Node(@NotNull Object value) {
+            this.value = value;
+            this.children = Records.children(value);
+
+            int hash = value.getClass().hashCode();
+            for (Object child : children) {
+                hash = hash * 31 + (child != null && Records.isTraversed(child) ? System.identityHashCode(child) : Objects.hashCode(child));
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Node other) || hash != other.hash) return false;
+            if (value.getClass() != other.value.getClass() || children.size() != other.children.size()) return false;
+
+            for (int i = 0; i < children.size(); i++) {
+                Object a = children.get(i), b = other.children.get(i);
+                if (a == b) continue;
+                if (a == null || b == null || Records.isTraversed(a) || !a.equals(b)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The outcome of interning a set of tables.
+     * @param tables the interned tables, in the same order as the provided ones
+     * @param nodes the number of records, lists, and maps that were visited
+     * @param unique the number of distinct records, lists, and maps that remain
+     * @param bytesSaved an estimate of the heap freed by sharing, assuming compressed references
+     */
+    public record Result(@NotNull Map<Key, LootTable> tables, long nodes, long unique, long bytesSaved) {}
+
+}
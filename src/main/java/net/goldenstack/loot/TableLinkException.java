@@ -0,0 +1,35 @@
+package net.goldenstack.loot;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Thrown when the references between loot tables, predicates, and functions could not be linked. Every dangling
+ * reference and reference cycle found while linking is recorded, not just the first one.
+ */
+public class TableLinkException extends RuntimeException {
+
+    private final @NotNull List<String> problems;
+
+    public TableLinkException(@NotNull List<String> problems) {
+        super(message(problems));
+        this.problems = List.copyOf(problems);
+    }
+
+    /**
+     * @return a description of each dangling reference or reference cycle
+     */
+    public @NotNull List<String> problems() {
+        return problems;
+    }
+
+    private static @NotNull String message(@NotNull List<String> problems) {
+        StringBuilder builder = new StringBuilder("Failed to link ").append(problems.size()).append(" reference(s):");
+        for (String problem : problems) {
+            builder.append("\n  ").append(problem);
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,168 @@
+package net.goldenstack.loot;
+
+import net.goldenstack.loot.util.Records;
+import net.goldenstack.loot.util.VanillaInterface;
+import net.kyori.adventure.key.Key;
+import net.minestom.server.utils.Either;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Resolves the references in loot tables ahead of time.<br>
+ * Without linking, table entries that refer to another table by key, as well as predicate and function references, look
+ * up their target in a registry every time they're used. Linking replaces each of these with a direct reference to its
+ * (also linked) target, so generating loot never needs to look anything up by key.<br>
+ * Every reference is checked while linking, so dangling references and reference cycles are reported all at once
+ * instead of silently generating nothing at runtime.<br>
+ * Linking also reorders each list of predicates so that cheap predicates are tested before expensive ones, without
+ * moving anything across predicates that consume random numbers, so seeded output is unchanged.<br>
+ * Tables with a {@link LootTable#type() type} are checked to only use the context parameters that their type provides.
+ */
+public final class TableLinker {
+
+    private final @NotNull Map<Key, LootTable> tables;
+    private final @NotNull VanillaInterface vanilla;
+
+    private final @NotNull Map<Object, Object> visited = new IdentityHashMap<>();
+    private final @NotNull Map<Target, Object> linked = new HashMap<>();
+    private final @NotNull List<Target> path = new ArrayList<>();
+    private final @NotNull List<String> problems = new ArrayList<>();
+
+    /**
+     * Links every reference in the provided tables. Table references are resolved against the provided tables first,
+     * falling back to the vanilla interface's registry, while predicate and function references are always resolved
+     * through the vanilla interface.
+     * @param tables the tables to link
+     * @param vanilla the vanilla interface to resolve references that aren't in the provided tables with
+     * @return the linked tables, in the same order as the provided ones
+     * @throws TableLinkException if any references are dangling or cyclic, or if any table uses context parameters
+     *                            that its type doesn't provide
+     */
+    public static @NotNull Map<Key, LootTable> link(@NotNull Map<Key, LootTable> tables, @NotNull VanillaInterface vanilla) {
+        TableLinker linker = new TableLinker(tables, vanilla);
+
+        Map<Key, LootTable> linked = new LinkedHashMap<>();
+        for (Key key : tables.keySet()) {
+            LootTable table = (LootTable) linker.resolve(new Target(Kind.TABLE, key));
+            linked.put(key, table);
+            if (table != null && table.type() != null) {
+                linker.checkParameters(key, table, table.type());
+            }
+        }
+
+        if (!linker.problems.isEmpty()) {
+            throw new TableLinkException(linker.problems);
+        }
+
+        return linked;
+    }
+
+    private TableLinker(@NotNull Map<Key, LootTable> tables, @NotNull VanillaInterface vanilla) {
+        this.tables = tables;
+        this.vanilla = vanilla;
+    }
+
+    private enum Kind {
+        TABLE("loot table"), PREDICATE("predicate"), FUNCTION("item modifier");
+
+        private final @NotNull String name;
+
+        Kind(@NotNull String name) {
+            this.name = name;
+        }
+    }
+
+    private record Target(@NotNull Kind kind, @NotNull Key key) {
+        @Override
+        public String toString() {
+            return kind.name + " " + key.asString();
+        }
+    }
+
+    /**
+     * Links the target of the provided reference, returning null if it's dangling or part of a cycle.
+     */
+    private @Nullable Object resolve(@NotNull Target target) {
+        if (linked.containsKey(target)) return linked.get(target);
+
+        int start = path.indexOf(target);
+        if (start != -1) {
+            StringBuilder cycle = new StringBuilder("Reference cycle: ");
+            for (Target step : path.subList(start, path.size())) {
+                cycle.append(step).append(" -> ");
+            }
+            problems.add(cycle.append(target).toString());
+            return null;
+        }
+
+        Object source = switch (target.kind()) {
+            case TABLE -> {
+                LootTable table = tables.get(target.key());
+                yield table != null ? table : vanilla.tableRegistry(target.key());
+            }
+            case PREDICATE -> vanilla.predicateRegistry(target.key());
+            case FUNCTION -> vanilla.functionRegistry(target.key());
+        };
+
+        Object result = null;
+        if (source == null) {
+            String referrer = path.isEmpty() ? "" : " (referenced by " + path.getLast() + ")";
+            problems.add("Unknown " + target + referrer);
+        } else {
+            path.add(target);
+            result = Records.rewrite(source, this::link, visited);
+            path.removeLast();
+        }
+
+        linked.put(target, result);
+        return result;
+    }
+
+    /**
+     * Reports every parameter that the provided table (including the tables, predicates, and functions that it refers
+     * to) uses but its type doesn't provide.
+     */
+    private void checkParameters(@NotNull Key key, @NotNull LootTable table, @NotNull LootContextType type) {
+        Set<String> missing = new TreeSet<>();
+        Records.rewrite(table, node -> {
+            for (LootContext.Key<?> parameter : LootContextType.referenced(node)) {
+                if (!type.allows(parameter)) {
+                    missing.add(parameter.id());
+                }
+            }
+            return node;
+        });
+
+        for (String parameter : missing) {
+            problems.add("Loot table " + key.asString() + " uses parameter '" + parameter +
+                    "', which is not provided by its type " + type.key().asString());
+        }
+    }
+
+    private @NotNull Object link(@NotNull Object node) {
+        return switch (node) {
+            case LootEntry.LootTable entry when entry.value() instanceof Either.Left<Key, LootTable>(Key key) -> {
+                LootTable table = (LootTable) resolve(new Target(Kind.TABLE, key));
+                yield table == null ? entry : new LootEntry.LootTable(entry.predicates(), entry.functions(),
+                        entry.weight(), entry.quality(), Either.right(table));
+            }
+            case LootPredicate.Reference reference when reference.resolved() == null -> {
+                LootPredicate predicate = (LootPredicate) resolve(new Target(Kind.PREDICATE, reference.name()));
+                yield predicate == null ? reference : new LootPredicate.Reference(reference.name(), predicate);
+            }
+            case LootFunction.Reference reference when reference.resolved() == null -> {
+                LootFunction function = (LootFunction) resolve(new Target(Kind.FUNCTION, reference.name()));
+                yield function == null ? reference : new LootFunction.Reference(reference.predicates(), reference.name(), function);
+            }
+            case List<?> list when !list.isEmpty() && list.stream().allMatch(LootPredicate.class::isInstance) -> {
+                @SuppressWarnings("unchecked")
+                List<LootPredicate> predicates = (List<LootPredicate>) list;
+                yield PredicateOrder.reorder(predicates);
+            }
+            default -> node;
+        };
+    }
+
+}
@@ -0,0 +1,38 @@
+package net.goldenstack.loot;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Thrown when one or more loot table files could not be loaded. Each failing file is recorded alongside its cause, and
+ * each cause is also added as a suppressed exception.
+ */
+public class TableLoadException extends RuntimeException {
+
+    private final @NotNull Map<Path, Throwable> failures;
+
+    public TableLoadException(@NotNull Map<Path, Throwable> failures) {
+        super(message(failures));
+        this.failures = Map.copyOf(failures);
+
+        failures.values().forEach(this::addSuppressed);
+    }
+
+    /**
+     * @return the paths that failed to load, mapped to the reason they failed
+     */
+    public @NotNull Map<Path, Throwable> failures() {
+        return failures;
+    }
+
+    private static @NotNull String message(@NotNull Map<Path, Throwable> failures) {
+        StringBuilder builder = new StringBuilder("Failed to load ").append(failures.size()).append(" loot table(s):");
+        for (var entry : failures.entrySet()) {
+            builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue().getMessage());
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,115 @@
+package net.goldenstack.loot;
+
+import net.kyori.adventure.key.Key;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing and size information about a single call to load tables, broken down per file.
+ * @param entries the information about each file, in the same order as the loaded tables
+ * @param wallNanos the total time taken to load every table, which is less than the sum of each file's times when
+ *                  loading in parallel
+ */
+public record TableLoadReport(@NotNull List<Entry> entries, long wallNanos) {
+
+    public TableLoadReport {
+        entries = List.copyOf(entries);
+    }
+
+    /**
+     * The timing and size information about a single table file.
+     * @param key the key of the table
+     * @param path the path of the table's file
+     * @param bytes the size of the file
+     * @param readNanos the time taken to read the file
+     * @param parseNanos the time taken to parse the contents of the file
+     * @param decodeNanos the time taken to decode the parsed contents into a table
+     * @param nodes the number of records, lists, and maps in the decoded table
+     */
+    public record Entry(@NotNull Key key, @NotNull Path path, long bytes, long readNanos, long parseNanos, long decodeNanos, long nodes) {
+
+        /**
+         * @return the total time taken to load this file
+         */
+        public long totalNanos() {
+            return readNanos + parseNanos + decodeNanos;
+        }
+    }
+
+    /**
+     * @return the total size of every file
+     */
+    public long bytes() {
+        return entries.stream().mapToLong(Entry::bytes).sum();
+    }
+
+    /**
+     * @return the time taken to read every file, summed across threads
+     */
+    public long readNanos() {
+        return entries.stream().mapToLong(Entry::readNanos).sum();
+    }
+
+    /**
+     * @return the time taken to parse every file, summed across threads
+     */
+    public long parseNanos() {
+        return entries.stream().mapToLong(Entry::parseNanos).sum();
+    }
+
+    /**
+     * @return the time taken to decode every file, summed across threads
+     */
+    public long decodeNanos() {
+        return entries.stream().mapToLong(Entry::decodeNanos).sum();
+    }
+
+    /**
+     * @return the number of nodes in every decoded table
+     */
+    public long nodes() {
+        return entries.stream().mapToLong(Entry::nodes).sum();
+    }
+
+    /**
+     * Returns the files that took the longest to load, slowest first.
+     * @param count the maximum number of files to return
+     * @return the slowest files
+     */
+    public @NotNull List<Entry> slowest(int count) {
+        return entries.stream().sorted(Comparator.comparingLong(Entry::totalNanos).reversed()).limit(count).toList();
+    }
+
+    /**
+     * Summarizes this report in a few lines of text, suitable for logging.
+     * @param slowest the number of slowest files to list individually
+     * @return the summary
+     */
+    public @NotNull String summary(int slowest) {
+        StringBuilder builder = new StringBuilder()
+                .append("Loaded ").append(entries.size()).append(" loot table(s) (")
+                .append(bytes() / 1024).append(" KiB, ").append(nodes()).append(" nodes) in ")
+                .append(millis(wallNanos)).append(" ms: read ").append(millis(readNanos()))
+                .append(" ms, parse ").append(millis(parseNanos()))
+                .append(" ms, decode ").append(millis(decodeNanos())).append(" ms");
+
+        for (Entry entry : slowest(slowest)) {
+            builder.append("\n  ").append(entry.key().asString()).append(": ").append(millis(entry.totalNanos()))
+                    .append(" ms (read ").append(millis(entry.readNanos()))
+                    .append(", parse ").append(millis(entry.parseNanos()))
+                    .append(", decode ").append(millis(entry.decodeNanos()))
+                    .append("; ").append(entry.bytes()).append(" bytes, ").append(entry.nodes()).append(" nodes)");
+        }
+
+        return builder.toString();
+    }
+
+    private static @NotNull String millis(long nanos) {
+        return String.format("%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+}
@@ -0,0 +1,346 @@
+package net.goldenstack.loot;
+
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.codec.Transcoder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * A binary cache of parsed loot table files, keyed by the content hash of each source file.<br>
+ * A snapshot stores each table as uncompressed binary NBT, so a table whose source file is unchanged skips text parsing
+ * entirely and goes straight to decoding. Decoding itself still runs on every load, as decoded tables reference live
+ * registry objects that can't be stored outside of the server.
+ */
+public final class TableSnapshot {
+
+    private static final int MAGIC = 0x54524F56; // "TROV"
+    private static final int VERSION = 2;
+    private static final int HASH_LENGTH = 32;
+
+    private TableSnapshot() {}
+
+    /**
+     * Reads every loot table in the provided directory, reusing the parsed contents in the snapshot for any file whose
+     * contents haven't changed. If the snapshot is missing, invalid, or out of date, it is rewritten afterward.
+     * @param directory the directory to parse
+     * @param snapshot the snapshot file to read from and write to
+     * @return the registry instance that contains parsing information
+     * @see Trove#readTables(Path)
+     */
+    public static @NotNull Map<Key, LootTable> readTables(@NotNull Path directory, @NotNull Path snapshot) {
+        return readTables(directory, snapshot, Runnable::run);
+    }
+
+    /**
+     * Reads every loot table in the provided directory, reusing the parsed contents in the snapshot for any file whose
+     * contents haven't changed. If the snapshot is missing, invalid, or out of date, it is rewritten afterward.<br>
+     * Each file is read and decoded as a separate task on the provided executor.
+     * @param directory the directory to parse
+     * @param snapshot the snapshot file to read from and write to
+     * @param executor the executor to read and decode files on
+     * @return the registry instance that contains parsing information
+     * @see Trove#readTables(Path, Executor)
+     */
+    public static @NotNull Map<Key, LootTable> readTables(@NotNull Path directory, @NotNull Path snapshot, @NotNull Executor executor) {
+        final Index index = Index.read(snapshot);
+
+        List<Path> files = Trove.findTables(directory);
+
+        final Transcoder<BinaryTag> coder = Trove.tableCoder();
+
+        List<Loaded> loaded = Trove.loadAll(files, executor, path -> {
+            Key key = Trove.tableKey(directory, path);
+
+            byte[] bytes = Trove.readBytes(path);
+            byte[] hash = hash(bytes);
+
+            CompoundBinaryTag cached = index.get(key, hash);
+            boolean hit = cached != null;
+
+            CompoundBinaryTag tag = hit ? cached : Trove.parseTable(bytes, path);
+
+            return new Loaded(key, hash, tag, hit, Trove.decodeTable(coder, tag, path));
+        });
+
+        Map<Key, LootTable> tables = new LinkedHashMap<>();
+        List<Entry> entries = new ArrayList<>();
+        boolean stale = loaded.size() != index.size();
+
+        for (Loaded table : loaded) {
+            tables.put(table.key(), table.table());
+
+            stale |= !table.cached();
+            entries.add(new Entry(table.key(), table.hash(), table.tag()));
+        }
+
+        if (stale) {
+            try {
+                write(snapshot, entries);
+            } catch (IOException e) {
+                // The snapshot is only a cache, so failing to update it shouldn't fail loading
+                MinecraftServer.getExceptionManager().handleException(e);
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * A single parsed table, as stored in a snapshot.
+     * @param key the key of the table
+     * @param hash the hash of the source file's contents
+     * @param tag the parsed contents of the source file
+     */
+    record Entry(@NotNull Key key, byte @NotNull [] hash, @NotNull CompoundBinaryTag tag) {}
+
+    private record Loaded(@NotNull Key key, byte @NotNull [] hash, @NotNull CompoundBinaryTag tag, boolean cached, @NotNull LootTable table) {}
+
+    /**
+     * Parses every loot table in the provided directory and writes them to a snapshot, without decoding any of them.
+     * Since parsing doesn't depend on any registries, this works without a running server, so snapshots can be
+     * generated at build time and shipped as a resource to be read with {@link #readSnapshot(InputStream)}.
+     * @param directory the directory to parse
+     * @param snapshot the snapshot file to write
+     * @throws IOException if the snapshot could not be written
+     */
+    public static void write(@NotNull Path directory, @NotNull Path snapshot) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Path path : Trove.findTables(directory)) {
+            byte[] bytes = Trove.readBytes(path);
+            entries.add(new Entry(Trove.tableKey(directory, path), hash(bytes), Trove.parseTable(bytes, path)));
+        }
+
+        write(snapshot, entries);
+    }
+
+    /**
+     * Decodes every table in the provided snapshot, without reading or parsing any table files. This is meant for
+     * snapshots generated ahead of time with {@link #write(Path, Path)}, such as ones bundled as a resource.
+     * @param stream the stream to read the snapshot from
+     * @return the decoded tables, keyed by table key, in the order they were written
+     * @throws IOException if the snapshot could not be read
+     * @throws IllegalArgumentException if the snapshot is malformed or from an incompatible version
+     */
+    public static @NotNull Map<Key, LootTable> readSnapshot(@NotNull InputStream stream) throws IOException {
+        Index index = Index.parse(ByteBuffer.wrap(stream.readAllBytes()));
+
+        final Transcoder<BinaryTag> coder = Trove.tableCoder();
+
+        Map<Key, LootTable> tables = new LinkedHashMap<>();
+        for (Key key : index.slots().keySet()) {
+            tables.put(key, Trove.decodeTable(coder, index.get(key), key));
+        }
+
+        return tables;
+    }
+
+    /**
+     * Writes a snapshot of the loot tables in a directory, for use in build scripts.<br>
+     * Usage: {@code TableSnapshot <directory> <snapshot>}
+     * @param args the directory to parse and the snapshot file to write
+     * @throws IOException if the snapshot could not be written
+     */
+    public static void main(String @NotNull [] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: TableSnapshot <directory> <snapshot>");
+        }
+
+        Path snapshot = Path.of(args[1]);
+        if (snapshot.getParent() != null) {
+            Files.createDirectories(snapshot.getParent());
+        }
+
+        write(Path.of(args[0]), snapshot);
+    }
+
+    /**
+     * Writes the provided entries to the snapshot file, replacing it atomically once written.
+     */
+    static void write(@NotNull Path snapshot, @NotNull List<Entry> entries) throws IOException {
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+
+        try (OutputStream stream = Files.newOutputStream(temp)) {
+            write(stream, entries);
+        }
+
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the provided entries to the stream in the snapshot format.
+     */
+    static void write(@NotNull OutputStream stream, @NotNull List<Entry> entries) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(entries.size());
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        for (Entry entry : entries) {
+            payload.reset();
+            BinaryTagIO.writer().write(entry.tag(), payload);
+
+            byte[] key = entry.key().asString().getBytes(StandardCharsets.UTF_8);
+            output.writeInt(key.length);
+            output.write(key);
+            output.write(entry.hash());
+            output.writeInt(payload.size());
+            payload.writeTo(output);
+        }
+
+        output.flush();
+    }
+
+    /**
+     * The entries of a snapshot file, read into memory. Entry contents are only parsed when requested.
+     */
+    record Index(@NotNull ByteBuffer buffer, @NotNull Map<Key, Slot> slots) {
+
+        private static final @NotNull Index EMPTY = new Index(ByteBuffer.allocate(0), Map.of());
+
+        record Slot(int hashOffset, int offset, int length) {}
+
+        /**
+         * Reads the provided snapshot file into memory, returning an empty index if it's missing or malformed.<br>
+         * The file is copied onto the heap rather than mapped, since a mapping can't be released explicitly and would
+         * keep the file open while it's being replaced (which fails on Windows).
+         */
+        static @NotNull Index read(@NotNull Path snapshot) {
+            if (!Files.isRegularFile(snapshot)) return EMPTY;
+
+            ByteBuffer buffer;
+            try {
+                buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            } catch (IOException e) {
+                return EMPTY;
+            }
+
+            return read(buffer);
+        }
+
+        /**
+         * Reads the entry layout of the provided snapshot contents, returning an empty index if they're malformed.
+         */
+        static @NotNull Index read(@NotNull ByteBuffer buffer) {
+            try {
+                return parse(buffer);
+            } catch (IllegalArgumentException e) {
+                return EMPTY;
+            }
+        }
+
+        /**
+         * Reads the entry layout of the provided snapshot contents, keeping entries in the order they were written.
+         * @throws IllegalArgumentException if the contents are malformed
+         */
+        static @NotNull Index parse(@NotNull ByteBuffer buffer) {
+            try {
+                if (buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a loot table snapshot");
+                if (buffer.getInt(4) != VERSION) throw new IllegalArgumentException("Unsupported snapshot version " + buffer.getInt(4));
+
+                int count = buffer.getInt(8);
+                int position = 12;
+
+                Map<Key, Slot> slots = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    byte[] key = new byte[buffer.getInt(position)];
+                    buffer.get(position + 4, key);
+                    position += 4 + key.length;
+
+                    int hashOffset = position;
+                    position += HASH_LENGTH;
+
+                    int length = buffer.getInt(position);
+                    position += 4;
+
+                    if (length < 0 || position + length > buffer.limit()) {
+                        throw new IllegalArgumentException("Truncated snapshot entry");
+                    }
+
+                    slots.put(Key.key(new String(key, StandardCharsets.UTF_8)), new Slot(hashOffset, position, length));
+                    position += length;
+                }
+
+                return new Index(buffer, slots);
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Malformed snapshot", e);
+            }
+        }
+
+        /**
+         * @return the number of entries in this index
+         */
+        int size() {
+            return slots.size();
+        }
+
+        /**
+         * Reads the tag stored under the provided key, regardless of its hash.
+         */
+        @NotNull CompoundBinaryTag get(@NotNull Key key) {
+            Slot slot = Objects.requireNonNull(slots.get(key), "No snapshot entry for " + key);
+
+            byte[] payload = new byte[slot.length()];
+            buffer.get(slot.offset(), payload);
+
+            try {
+                return BinaryTagIO.unlimitedReader().read(new ByteArrayInputStream(payload));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Reads the tag stored under the provided key, or returns null if there is none, if its hash doesn't match, or if
+         * it can't be read, so that the source file is decoded instead.
+         */
+        @Nullable CompoundBinaryTag get(@NotNull Key key, byte @NotNull [] hash) {
+            Slot slot = slots.get(key);
+            if (slot == null) return null;
+
+            byte[] stored = new byte[HASH_LENGTH];
+            buffer.get(slot.hashOffset(), stored);
+            if (!Arrays.equals(stored, hash)) return null;
+
+            try {
+                return get(key);
+            } catch (RuntimeException e) {
+                // A corrupt entry can fail in many ways, none of which should prevent loading the file itself
+                return null;
+            }
+        }
+    }
+
+    static byte @NotNull [] hash(byte @NotNull [] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
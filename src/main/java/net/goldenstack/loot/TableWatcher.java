@@ -0,0 +1,251 @@
+package net.goldenstack.loot;
+
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.codec.Transcoder;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the loot tables in a directory up to date with the files on disk.<br>
+ * Whenever files are added, changed, or deleted, only those files are decoded again, after which a new immutable table
+ * map is published all at once. Readers of {@link #tables()} therefore never see a partially reloaded state and are
+ * never blocked by a reload. If a changed file fails to decode, the previous version of its table is kept.
+ */
+public final class TableWatcher implements AutoCloseable {
+
+    /**
+     * How long to wait for further changes before reloading, so that editors writing a file in several steps only cause
+     * one reload.
+     */
+    private static final long SETTLE_MILLIS = 100;
+
+    private final @NotNull Path directory;
+    private final @NotNull Executor executor;
+    private final @NotNull Transcoder<BinaryTag> coder;
+    private final @NotNull WatchService service;
+    private final @NotNull Thread thread;
+
+    // Only accessed from the watcher thread after construction
+    private final @NotNull Map<WatchKey, Path> directories = new HashMap<>();
+    private final @NotNull Map<Path, Key> files = new HashMap<>();
+    private final @NotNull Map<Key, LootTable> current = new LinkedHashMap<>();
+
+    private volatile @NotNull Map<Key, LootTable> tables;
+
+    /**
+     * Reads every loot table in the provided directory and starts watching it for changes.
+     * @param directory the directory to parse and watch
+     * @return the watcher instance, which must be closed to stop watching
+     * @throws IOException if the directory could not be watched
+     * @see Trove#readTables(Path)
+     */
+    public static @NotNull TableWatcher watch(@NotNull Path directory) throws IOException {
+        return watch(directory, Runnable::run);
+    }
+
+    /**
+     * Reads every loot table in the provided directory and starts watching it for changes. Files are read and decoded
+     * as separate tasks on the provided executor, both initially and when reloading.
+     * @param directory the directory to parse and watch
+     * @param executor the executor to read and decode files on
+     * @return the watcher instance, which must be closed to stop watching
+     * @throws IOException if the directory could not be watched
+     * @see Trove#readTables(Path, Executor)
+     */
+    public static @NotNull TableWatcher watch(@NotNull Path directory, @NotNull Executor executor) throws IOException {
+        return new TableWatcher(directory, executor);
+    }
+
+    private TableWatcher(@NotNull Path directory, @NotNull Executor executor) throws IOException {
+        this.directory = directory;
+        this.executor = executor;
+        this.coder = Trove.tableCoder();
+        this.service = directory.getFileSystem().newWatchService();
+
+        try {
+            // Register before reading so that no changes are missed in between
+            registerAll(directory);
+
+            List<Path> paths = Trove.findTables(directory);
+            List<Trove.Keyed> decoded = Trove.loadAll(paths, executor,
+                    path -> new Trove.Keyed(Trove.tableKey(directory, path), Trove.readTable(coder, path)));
+
+            for (int i = 0; i < paths.size(); i++) {
+                files.put(paths.get(i), decoded.get(i).key());
+                current.put(decoded.get(i).key(), decoded.get(i).table());
+            }
+        } catch (RuntimeException e) {
+            service.close();
+            throw e;
+        }
+        this.tables = Collections.unmodifiableMap(new LinkedHashMap<>(current));
+
+        this.thread = new Thread(this::run, "trove-table-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the most recently published tables. The returned map is immutable and is never modified; reloads publish
+     * a new map instead.
+     * @return the current tables
+     */
+    public @NotNull Map<Key, LootTable> tables() {
+        return tables;
+    }
+
+    /**
+     * Stops watching the directory. The last published tables remain available from {@link #tables()}.
+     */
+    @Override
+    public void close() throws IOException {
+        service.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                Set<Path> deleted = new HashSet<>();
+
+                boolean rescan = poll(service.take(), changed, deleted);
+
+                WatchKey next;
+                while ((next = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    rescan |= poll(next, changed, deleted);
+                }
+
+                try {
+                    if (rescan) {
+                        // Registering is idempotent, and picks up any directories that couldn't be registered before
+                        registerAll(directory);
+                        deleted.addAll(files.keySet());
+                        changed.addAll(Trove.findTables(directory));
+                    }
+
+                    reload(changed, deleted);
+                } catch (RuntimeException e) {
+                    MinecraftServer.getExceptionManager().handleException(e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // The watcher was closed
+        }
+    }
+
+    /**
+     * Drains the events of the provided key into the sets of changed and deleted paths, returning true if events were
+     * lost and the whole directory must be scanned again.
+     */
+    private boolean poll(@NotNull WatchKey key, @NotNull Set<Path> changed, @NotNull Set<Path> deleted) {
+        Path parent = directories.get(key);
+        boolean rescan = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || parent == null) {
+                rescan = true;
+                continue;
+            }
+
+            Path path = parent.resolve((Path) event.context());
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                deleted.add(path);
+                changed.remove(path);
+            } else if (Files.isDirectory(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    // Files may have been added to the directory before it was registered
+                    try {
+                        registerAll(path);
+                        changed.addAll(Trove.findTables(path));
+                    } catch (RuntimeException e) {
+                        // The directory was probably moved or deleted while walking it, so check everything again
+                        rescan = true;
+                    }
+                }
+            } else if (path.getFileName().toString().endsWith(Trove.FILE_SUFFIX)) {
+                changed.add(path);
+                deleted.remove(path);
+            }
+        }
+
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+
+        return rescan;
+    }
+
+    private void reload(@NotNull Set<Path> changed, @NotNull Set<Path> deleted) {
+        // Deleted directories are reported by their own path, so remove every file inside them too. Files that still
+        // exist were recreated or moved back after being deleted, so they're reloaded instead.
+        for (var iterator = files.entrySet().iterator(); iterator.hasNext(); ) {
+            var entry = iterator.next();
+            if (isDeleted(entry.getKey(), deleted) && !Files.isRegularFile(entry.getKey())) {
+                current.remove(entry.getValue());
+                iterator.remove();
+            }
+        }
+
+        List<Path> paths = changed.stream().filter(Files::isRegularFile).sorted().toList();
+
+        // Keep the old version of any table that fails, but still apply the rest
+        Map<Path, Throwable> failures = new ConcurrentHashMap<>();
+        List<Trove.Keyed> decoded = Trove.loadAll(paths, executor, path -> {
+            try {
+                return new Trove.Keyed(Trove.tableKey(directory, path), Trove.readTable(coder, path));
+            } catch (RuntimeException e) {
+                failures.put(path, e);
+                return null;
+            }
+        });
+
+        if (!failures.isEmpty()) {
+            MinecraftServer.getExceptionManager().handleException(new TableLoadException(failures));
+        }
+
+        for (int i = 0; i < paths.size(); i++) {
+            Trove.Keyed table = decoded.get(i);
+            if (table == null) continue;
+
+            files.put(paths.get(i), table.key());
+            current.put(table.key(), table.table());
+        }
+
+        tables = Collections.unmodifiableMap(new LinkedHashMap<>(current));
+    }
+
+    /**
+     * Returns true if the provided path or any of its ancestors are in the provided set of deleted paths.
+     */
+    private static boolean isDeleted(@NotNull Path path, @NotNull Set<Path> deleted) {
+        for (Path ancestor = path; ancestor != null; ancestor = ancestor.getParent()) {
+            if (deleted.contains(ancestor)) return true;
+        }
+        return false;
+    }
+
+    private void registerAll(@NotNull Path root) {
+        try (Stream<Path> stream = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) stream.filter(Files::isDirectory)::iterator) {
+                WatchKey key = path.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                directories.put(key, path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -1,9 +1,12 @@
 package net.goldenstack.loot;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import net.goldenstack.loot.util.Records;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
 import net.minestom.server.MinecraftServer;
-import net.minestom.server.adventure.MinestomAdventure;
 import net.minestom.server.codec.Transcoder;
 import net.minestom.server.coordinate.Point;
 import net.minestom.server.coordinate.Pos;
@@ -16,63 +19,350 @@ import net.minestom.server.registry.RegistryTranscoder;
 import net.minestom.server.utils.time.TimeUnit;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 public class Trove {
 
+    static final @NotNull String FILE_SUFFIX = ".json";
+    private static final @NotNull String PACK_DATA = "data";
+    private static final @NotNull String PACK_LOOT_TABLES = "loot_table";
+
     private Trove() {}
-    
+
     /**
      * Parses every JSON file in the provided directory, or one of its subdirectories, into loot tables, returning the
      * results in to a table registry instance.
      * @param directory the directory to parse
      * @return the registry instance that contains parsing information
      */
-    @SuppressWarnings("UnstableApiUsage")
     public static @NotNull Map<Key, LootTable> readTables(@NotNull Path directory) {
-        Map<Key, LootTable> tables = new HashMap<>();
+        return readTables(directory, Runnable::run);
+    }
+
+    /**
+     * Parses every JSON file in the provided directory, or one of its subdirectories, into loot tables, reading and
+     * decoding each file as a separate task on the provided executor. Passing {@link ForkJoinPool#commonPool()} decodes
+     * the tables in parallel.<br>
+     * The returned map iterates in the order of the sorted file paths, regardless of the order in which tasks finish.
+     * If any files fail to load, every failure is collected into one {@link TableLoadException}.
+     * @param directory the directory to parse
+     * @param executor the executor to read and decode files on
+     * @return the registry instance that contains parsing information
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public static @NotNull Map<Key, LootTable> readTables(@NotNull Path directory, @NotNull Executor executor) {
+        List<Path> files = findTables(directory);
+
+        final Transcoder<BinaryTag> coder = tableCoder();
+
+        List<Keyed> decoded = loadAll(files, executor, path -> new Keyed(tableKey(directory, path), readTable(coder, path)));
+
+        Map<Key, LootTable> tables = new LinkedHashMap<>();
+        for (Keyed table : decoded) {
+            tables.put(table.key(), table.table());
+        }
+
+        return tables;
+    }
+
+    /**
+     * A decoded table along with its key.
+     */
+    record Keyed(@NotNull Key key, @NotNull LootTable table) {}
+
+    /**
+     * Parses every JSON file in the provided directory, or one of its subdirectories, into loot tables, exactly like
+     * {@link #readTables(Path, Executor)}. Once every table is loaded, a report of how long each file took to read,
+     * parse, and decode is passed to the provided consumer.<br>
+     * Profiling only adds a few timer reads and a walk over each decoded table, so it's cheap enough to leave enabled.
+     * @param directory the directory to parse
+     * @param executor the executor to read and decode files on
+     * @param report the consumer to pass the load report to
+     * @return the registry instance that contains parsing information
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public static @NotNull Map<Key, LootTable> readTables(@NotNull Path directory, @NotNull Executor executor, @NotNull Consumer<TableLoadReport> report) {
+        List<Path> files = findTables(directory);
+
+        final Transcoder<BinaryTag> coder = tableCoder();
+
+        long start = System.nanoTime();
+        List<Profiled> profiled = loadAll(files, executor, path -> profileTable(coder, tableKey(directory, path), path));
+        long elapsed = System.nanoTime() - start;
+
+        Map<Key, LootTable> tables = new LinkedHashMap<>();
+        List<TableLoadReport.Entry> entries = new ArrayList<>(profiled.size());
+        for (Profiled table : profiled) {
+            tables.put(table.entry().key(), table.table());
+            entries.add(table.entry());
+        }
+
+        report.accept(new TableLoadReport(entries, elapsed));
+
+        return tables;
+    }
+
+    private record Profiled(@NotNull LootTable table, @NotNull TableLoadReport.Entry entry) {}
+
+    private static @NotNull Profiled profileTable(@NotNull Transcoder<BinaryTag> coder, @NotNull Key key, @NotNull Path path) {
+        long start = System.nanoTime();
+        byte[] bytes = readBytes(path);
+        long read = System.nanoTime();
+        CompoundBinaryTag tag = parseTable(bytes, path);
+        long parsed = System.nanoTime();
+        LootTable table = decodeTable(coder, tag, path);
+        long decoded = System.nanoTime();
+
+        return new Profiled(table, new TableLoadReport.Entry(key, path, bytes.length,
+                read - start, parsed - read, decoded - parsed, Records.count(table)));
+    }
+
+    /**
+     * Finds every JSON file in the provided directory, or one of its subdirectories, without parsing any of them. Each
+     * table is only read and decoded the first time it is requested from the returned map, which is safe to use from
+     * multiple threads. Iterating over the values of the map decodes every table.<br>
+     * Errors in a table are only reported when it is requested, as a {@link TableLoadException}. Files whose names
+     * aren't valid keys are reported up front, together in a single {@link TableLoadException}.
+     * @param directory the directory to index
+     * @return the immutable registry instance that decodes tables on demand
+     */
+    public static @NotNull Map<Key, LootTable> readTablesLazily(@NotNull Path directory) {
+        return new LazyTables(directory);
+    }
+
+    /**
+     * Reads every loot table in the provided datapack, which may either be a directory or a zip archive. Archives are
+     * read in place, without being extracted. Tables are read from {@code data/<namespace>/loot_table} for every
+     * namespace in the pack, and are keyed with that namespace.
+     * @param pack the datapack directory or archive to read
+     * @return the registry instance that contains parsing information
+     */
+    public static @NotNull Map<Key, LootTable> readPack(@NotNull Path pack) {
+        return readPacks(List.of(pack), Runnable::run);
+    }
+
+    /**
+     * Reads every loot table in the provided stack of datapacks, each of which may either be a directory or a zip
+     * archive. When multiple packs contain a table with the same key, the table from the pack that appears later in the
+     * list is used.<br>
+     * Overrides are resolved before any files are read, so tables that are overridden are never decoded. Each remaining
+     * file is read and decoded as a separate task on the provided executor.
+     * @param packs the datapack directories or archives to read, from lowest to highest priority
+     * @param executor the executor to read and decode files on
+     * @return the registry instance that contains parsing information
+     * @see #readPack(Path)
+     */
+    public static @NotNull Map<Key, LootTable> readPacks(@NotNull List<Path> packs, @NotNull Executor executor) {
+        List<FileSystem> archives = new ArrayList<>();
+        try {
+            Map<Key, Path> sources = new LinkedHashMap<>();
+            Map<Path, Throwable> failures = new LinkedHashMap<>();
+
+            for (Path pack : packs) {
+                Path root = pack;
+                if (Files.isRegularFile(pack)) {
+                    FileSystem archive = FileSystems.newFileSystem(pack);
+                    archives.add(archive);
+                    root = archive.getPath("/");
+                }
+
+                Path data = root.resolve(PACK_DATA);
+                if (!Files.isDirectory(data)) continue;
+
+                List<Path> namespaces;
+                try (var stream = Files.list(data)) {
+                    namespaces = stream.filter(Files::isDirectory).sorted().toList();
+                }
+
+                for (Path namespace : namespaces) {
+                    Path directory = namespace.resolve(PACK_LOOT_TABLES);
+                    if (!Files.isDirectory(directory)) continue;
+
+                    String name = namespace.getFileName().toString().replace("/", "");
+                    for (Path path : findTables(directory)) {
+                        // Report invalid keys alongside the files that fail to decode
+                        try {
+                            sources.put(tableKey(name, directory, path), path);
+                        } catch (RuntimeException e) {
+                            failures.put(path, e);
+                        }
+                    }
+                }
+            }
+
+            final Transcoder<BinaryTag> coder = tableCoder();
+
+            List<Path> files = List.copyOf(sources.values());
+            List<LootTable> decoded = loadAll(files, executor, path -> readTable(coder, path), failures);
+
+            Map<Key, LootTable> tables = new LinkedHashMap<>();
+            int index = 0;
+            for (Key key : sources.keySet()) {
+                tables.put(key, decoded.get(index++));
+            }
 
-        final String FILE_SUFFIX = ".json";
+            return tables;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (FileSystem archive : archives) {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    MinecraftServer.getExceptionManager().handleException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the provided loader on each file as a separate task on the provided executor, returning the results in the
+     * same order as the files. If any files fail to load, every failure is collected into one
+     * {@link TableLoadException}.
+     */
+    static <T> @NotNull List<T> loadAll(@NotNull List<Path> files, @NotNull Executor executor, @NotNull Function<Path, T> loader) {
+        return loadAll(files, executor, loader, Map.of());
+    }
 
-        List<Path> files;
+    /**
+     * Runs the provided loader on each file like {@link #loadAll(List, Executor, Function)}, but also reports the
+     * provided failures, which happened before loading, in the same {@link TableLoadException}.
+     */
+    static <T> @NotNull List<T> loadAll(@NotNull List<Path> files, @NotNull Executor executor, @NotNull Function<Path, T> loader, @NotNull Map<Path, Throwable> earlier) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(files.size());
+        for (var path : files) {
+            futures.add(CompletableFuture.supplyAsync(() -> loader.apply(path), executor));
+        }
+
+        List<T> results = new ArrayList<>(files.size());
+        Map<Path, Throwable> failures = new LinkedHashMap<>(earlier);
+
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                results.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                failures.put(files.get(i), e.getCause() != null ? e.getCause() : e);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new TableLoadException(failures);
+        }
+
+        return results;
+    }
+
+    /**
+     * Finds every JSON file in the provided directory or one of its subdirectories, sorted by path.
+     */
+    static @NotNull List<Path> findTables(@NotNull Path directory) {
         try (var stream = Files.find(directory, Integer.MAX_VALUE,
                 (path, attr) -> attr.isRegularFile() && path.getFileName().toString().endsWith(FILE_SUFFIX))) {
-            files = stream.toList();
+            return stream.sorted().toList();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+    }
 
-        final Transcoder<BinaryTag> coder = new RegistryTranscoder<>(Transcoder.NBT, MinecraftServer.process());
+    /**
+     * Determines the key of the table at the provided path, relative to the directory it was found in.
+     */
+    static @NotNull Key tableKey(@NotNull Path directory, @NotNull Path path) {
+        return tableKey(Key.MINECRAFT_NAMESPACE, directory, path);
+    }
 
-        for (var path : files) {
+    /**
+     * Determines the key of the table at the provided path in the provided namespace, relative to the directory it was
+     * found in.
+     */
+    static @NotNull Key tableKey(@NotNull String namespace, @NotNull Path directory, @NotNull Path path) {
+        String keyPath = StreamSupport.stream(directory.relativize(path).spliterator(), false).map(Path::toString).collect(Collectors.joining("/"));
 
-            String keyPath = StreamSupport.stream(directory.relativize(path).spliterator(), false).map(Path::toString).collect(Collectors.joining("/"));
+        return Key.key(namespace, keyPath.substring(0, keyPath.length() - FILE_SUFFIX.length()));
+    }
 
-            if (!keyPath.endsWith(FILE_SUFFIX)) continue;
-            keyPath = keyPath.substring(0, keyPath.length() - FILE_SUFFIX.length());
+    /**
+     * Creates the transcoder that loot tables are decoded with.<br>
+     * Every table is decoded from NBT, whether it was just parsed or read from a {@link TableSnapshot}, so the same
+     * files always produce the same tables regardless of where they were loaded from.
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    static @NotNull Transcoder<BinaryTag> tableCoder() {
+        return new RegistryTranscoder<>(Transcoder.NBT, MinecraftServer.process());
+    }
 
-            BinaryTag tag;
-            try {
-                tag = MinestomAdventure.tagStringIO().asTag(Files.readString(path));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+    /**
+     * Reads and decodes the single loot table at the provided path. The file is parsed straight from its bytes, without
+     * reading it into a string first.
+     */
+    static @NotNull LootTable readTable(@NotNull Transcoder<BinaryTag> coder, @NotNull Path path) {
+        JsonElement json;
+        try (Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+            json = JsonParser.parseReader(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return decodeTable(coder, toTag(json, path), path);
+    }
+
+    /**
+     * Reads the raw contents of a loot table file.
+     */
+    static byte @NotNull [] readBytes(@NotNull Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses the raw contents of a loot table file as JSON, converting it into the NBT form that tables are decoded from.
+     */
+    static @NotNull CompoundBinaryTag parseTable(byte @NotNull [] bytes, @NotNull Object source) {
+        return toTag(JsonParser.parseReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)), source);
+    }
 
-            tables.put(
-                    Key.key(keyPath),
-                    LootTable.CODEC.decode(coder, tag).orElseThrow("parsing " + path)
-            );
+    /**
+     * Converts a parsed loot table file into the NBT form that tables are decoded from.
+     */
+    private static @NotNull CompoundBinaryTag toTag(@NotNull JsonElement json, @NotNull Object source) {
+        BinaryTag tag = Transcoder.JSON.convertTo(Transcoder.NBT, json).orElseThrow("converting " + source);
+        if (!(tag instanceof CompoundBinaryTag compound)) {
+            throw new IllegalArgumentException("Expected an object when parsing " + source);
         }
+        return compound;
+    }
 
-        return tables;
+    /**
+     * Decodes a parsed loot table, using the provided source (usually a path) in the error message if decoding fails.
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    static <T> @NotNull LootTable decodeTable(@NotNull Transcoder<T> coder, @NotNull T value, @NotNull Object source) {
+        return LootTable.CODEC.decode(coder, value).orElseThrow("parsing " + source);
     }
 
     public static void blockDrop(@NotNull Instance instance, @NotNull ItemStack item, @NotNull Point block) {
@@ -0,0 +1,166 @@
+package net.goldenstack.loot.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Samples binomially distributed numbers without running one trial at a time.<br>
+ * When the expected number of successes (or failures, whichever is smaller) is below 30, the distribution is sampled by
+ * inversion, which uses a single uniform number in almost every case. Otherwise, the BTPE algorithm (Kachitvichyanukul
+ * &amp; Schmeiser, 1988) is used, which takes a constant expected number of uniform numbers regardless of the number of
+ * trials.
+ */
+public final class BinomialSampler {
+
+    /**
+     * Above this many expected successes, BTPE is faster than inversion.
+     */
+    private static final double INVERSION_LIMIT = 30;
+
+    private BinomialSampler() {}
+
+    /**
+     * Returns the number of successes out of the provided number of trials, where each trial succeeds with the provided
+     * probability. This has the same distribution as running each trial separately.<br>
+     * Probabilities of 1 or more always succeed, and probabilities of 0 or less (or NaN) never succeed.
+     * @param random the random number generator to use
+     * @param trials the number of trials
+     * @param probability the probability of each trial succeeding
+     * @return the number of successes, between 0 and the number of trials
+     */
+    public static int sample(@NotNull RandomGenerator random, int trials, double probability) {
+        if (trials <= 0 || !(probability > 0)) return 0;
+        if (probability >= 1) return trials;
+
+        // Sample whichever of successes or failures is less likely, then flip it if needed
+        double p = Math.min(probability, 1 - probability);
+
+        int result = trials * p < INVERSION_LIMIT ? inversion(random, trials, p) : btpe(random, trials, p);
+
+        return probability > 0.5 ? trials - result : result;
+    }
+
+    private static int inversion(@NotNull RandomGenerator random, int n, double p) {
+        double q = 1 - p;
+        double qn = Math.exp(n * Math.log(q));
+        double np = n * p;
+        double bound = Math.min(n, np + 10 * Math.sqrt(np * q + 1));
+
+        int x = 0;
+        double px = qn;
+        double u = random.nextDouble();
+
+        while (u > px) {
+            x++;
+            if (x > bound) {
+                // Only reachable through rounding error, so just start over
+                x = 0;
+                px = qn;
+                u = random.nextDouble();
+            } else {
+                u -= px;
+                px = ((n - x + 1) * p * px) / (x * q);
+            }
+        }
+
+        return x;
+    }
+
+    private static int btpe(@NotNull RandomGenerator random, int n, double p) {
+        double q = 1 - p;
+        double nrq = n * p * q;
+        double fm = n * p + p;
+        int m = (int) Math.floor(fm);
+
+        double p1 = Math.floor(2.195 * Math.sqrt(nrq) - 4.6 * q) + 0.5;
+        double xm = m + 0.5;
+        double xl = xm - p1;
+        double xr = xm + p1;
+        double c = 0.134 + 20.5 / (15.3 + m);
+
+        double a = (fm - xl) / (fm - xl * p);
+        double laml = a * (1 + a / 2);
+        a = (xr - fm) / (xr * q);
+        double lamr = a * (1 + a / 2);
+
+        double p2 = p1 * (1 + 2 * c);
+        double p3 = p2 + c / laml;
+        double p4 = p3 + c / lamr;
+
+        while (true) {
+            double u = random.nextDouble() * p4;
+            double v = random.nextDouble();
+            int y;
+
+            if (u <= p1) {
+                // Triangular region, which is always accepted
+                return (int) Math.floor(xm - p1 * v + u);
+            } else if (u <= p2) {
+                // Parallelogram region
+                double x = xl + (u - p1) / c;
+                v = v * c + 1 - Math.abs(m - x + 0.5) / p1;
+                if (v > 1) continue;
+                y = (int) Math.floor(x);
+            } else if (u <= p3) {
+                // Left exponential tail
+                y = (int) Math.floor(xl + Math.log(v) / laml);
+                if (y < 0 || v == 0) continue;
+                v = v * (u - p2) * laml;
+            } else {
+                // Right exponential tail
+                y = (int) Math.floor(xr - Math.log(v) / lamr);
+                if (y > n || v == 0) continue;
+                v = v * (u - p3) * lamr;
+            }
+
+            int k = Math.abs(y - m);
+            if (k <= 20 || k >= nrq / 2 - 1) {
+                // Evaluate f(y) / f(m) explicitly
+                double s = p / q;
+                double as = s * (n + 1);
+                double f = 1;
+                if (m < y) {
+                    for (int i = m + 1; i <= y; i++) {
+                        f *= (as / i - s);
+                    }
+                } else if (m > y) {
+                    for (int i = y + 1; i <= m; i++) {
+                        f /= (as / i - s);
+                    }
+                }
+                if (v <= f) return y;
+                continue;
+            }
+
+            // Squeeze using upper and lower bounds on log(f(y))
+            double rho = (k / nrq) * ((k * (k / 3.0 + 0.625) + 0.16666666666666666) / nrq + 0.5);
+            double t = -k * (double) k / (2 * nrq);
+            double logV = Math.log(v);
+            if (logV < t - rho) return y;
+            if (logV > t + rho) continue;
+
+            // Final acceptance test, using Stirling's formula
+            double x1 = y + 1;
+            double f1 = m + 1;
+            double z = n + 1 - m;
+            double w = n - y + 1;
+
+            double bound = xm * Math.log(f1 / x1)
+                    + (n - m + 0.5) * Math.log(z / w)
+                    + (y - m) * Math.log(w * p / (x1 * q))
+                    + stirling(f1) + stirling(z) + stirling(x1) + stirling(w);
+
+            if (logV <= bound) return y;
+        }
+    }
+
+    /**
+     * The correction term of Stirling's approximation for the provided value.
+     */
+    private static double stirling(double x) {
+        double x2 = x * x;
+        return (13860 - (462 - (132 - (99 - 140 / x2) / x2) / x2) / x2) / x / 166320;
+    }
+
+}
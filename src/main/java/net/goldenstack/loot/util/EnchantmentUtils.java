@@ -1,5 +1,6 @@
 package net.goldenstack.loot.util;
 
+import net.goldenstack.loot.LootContext;
 import net.minestom.server.component.DataComponent;
 import net.minestom.server.component.DataComponents;
 import net.minestom.server.entity.Entity;
@@ -31,6 +32,23 @@ public class EnchantmentUtils {
         return enchantments.enchantments().getOrDefault(key, 0);
     }
 
+    /**
+     * Returns the level of the provided enchantment on the provided item, memoized in the provided context.
+     */
+    public static int level(@NotNull LootContext context, @Nullable ItemStack item, @NotNull RegistryKey<Enchantment> key) {
+        Integer level = context.memoize(LootContext.Memo.ITEM_ENCHANTMENT_LEVEL, item, key);
+        return level != null ? level : 0;
+    }
+
+    /**
+     * Returns the highest level of the provided enchantment across the equipment of the provided entity, memoized in
+     * the provided context.
+     */
+    public static int level(@NotNull LootContext context, @Nullable Entity entity, @NotNull RegistryKey<Enchantment> key) {
+        Integer level = context.memoize(LootContext.Memo.ENTITY_ENCHANTMENT_LEVEL, entity, key);
+        return level != null ? level : 0;
+    }
+
     public static int level(@Nullable Entity entity, @NotNull RegistryKey<Enchantment> key) {
         int level = 0;
         if (entity instanceof LivingEntity living) {
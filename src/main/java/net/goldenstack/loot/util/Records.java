@@ -0,0 +1,242 @@
+package net.goldenstack.loot.util;
+
+import net.minestom.server.utils.Either;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Utilities for rewriting trees of loot records, such as decoded loot tables.<br>
+ * Only records from the {@code net.goldenstack.loot} packages are traversed, along with the lists, maps and eithers that
+ * contain them. Everything else, such as keys, items, and registry objects, is treated as an opaque leaf.
+ */
+public final class Records {
+
+    private static final @NotNull String PACKAGE = "net.goldenstack.loot";
+
+    private static final @NotNull ClassValue<Shape> SHAPES = new ClassValue<>() {
+        @Override
+        protected Shape computeValue(@NotNull Class<?> type) {
+            return Shape.of(type);
+        }
+    };
+
+    private Records() {}
+
+    /**
+     * Rewrites the provided value from the bottom up. The children of each node are rewritten first, after which the
+     * node is rebuilt with its new children (only if any of them changed) and passed to the operator.<br>
+     * Nodes that appear several times in the tree, by identity, are only rewritten once.
+     * @param value the root of the tree to rewrite
+     * @param operator the operator to apply to each rebuilt node
+     * @return the rewritten tree
+     * @param <T> the type of the root, which the operator must preserve
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> @NotNull T rewrite(@NotNull T value, @NotNull UnaryOperator<Object> operator) {
+        return (T) rewrite(value, operator, new IdentityHashMap<>());
+    }
+
+    /**
+     * Rewrites the provided value as in {@link #rewrite(Object, UnaryOperator)}, sharing the provided cache of already
+     * rewritten nodes. Passing the same cache while rewriting several trees avoids rewriting their shared nodes twice.
+     * @param value the root of the tree to rewrite
+     * @param operator the operator to apply to each rebuilt node
+     * @param cache the rewritten version of each node visited so far, by identity
+     * @return the rewritten tree
+     */
+    public static @NotNull Object rewrite(@NotNull Object value, @NotNull UnaryOperator<Object> operator, @NotNull Map<Object, Object> cache) {
+        Object cached = cache.get(value);
+        if (cached != null) return cached;
+
+        Object rebuilt = switch (value) {
+            case Record record when isLoot(record.getClass()) -> rebuild(record, operator, cache);
+            case List<?> list -> rebuild(list, operator, cache);
+            case Map<?, ?> map -> rebuild(map, operator, cache);
+            case Either.Left<?, ?>(Object left) -> {
+                Object result = rewriteNullable(left, operator, cache);
+                yield result == left ? value : Either.left(result);
+            }
+            case Either.Right<?, ?>(Object right) -> {
+                Object result = rewriteNullable(right, operator, cache);
+                yield result == right ? value : Either.right(result);
+            }
+            default -> value;
+        };
+
+        Object result = isTraversed(value) ? operator.apply(rebuilt) : value;
+        cache.put(value, result);
+        return result;
+    }
+
+    /**
+     * Counts the distinct nodes in the provided tree that would be passed to the operator by
+     * {@link #rewrite(Object, UnaryOperator)}.
+     * @param value the root of the tree to count
+     * @return the number of distinct records, lists, maps, and eithers in the tree
+     */
+    public static long count(@NotNull Object value) {
+        long[] count = {0};
+        rewrite(value, node -> {
+            count[0]++;
+            return node;
+        });
+        return count[0];
+    }
+
+    /**
+     * Returns the direct children of the provided value, in order: the components of a loot record, the elements of a
+     * list, the keys and values of a map (alternating, in iteration order), or the value of an either. Values that
+     * aren't {@link #isTraversed(Object) traversed} have no children.
+     * @param value the value to get the children of
+     * @return the children of the value, which may contain nulls
+     */
+    public static @NotNull List<Object> children(@NotNull Object value) {
+        return switch (value) {
+            case Record record when isLoot(record.getClass()) -> {
+                Shape shape = SHAPES.get(record.getClass());
+                List<Object> children = new ArrayList<>(shape.components().length);
+                try {
+                    for (RecordComponent component : shape.components()) {
+                        children.add(component.getAccessor().invoke(record));
+                    }
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new RuntimeException("Could not read " + record.getClass().getName(), e);
+                }
+                yield children;
+            }
+            case List<?> list -> new ArrayList<>(list);
+            case Map<?, ?> map -> {
+                List<Object> children = new ArrayList<>(map.size() * 2);
+                for (var entry : map.entrySet()) {
+                    children.add(entry.getKey());
+                    children.add(entry.getValue());
+                }
+                yield children;
+            }
+            case Either.Left<?, ?>(Object left) -> Collections.singletonList(left);
+            case Either.Right<?, ?>(Object right) -> Collections.singletonList(right);
+            default -> List.of();
+        };
+    }
+
+    /**
+     * Returns whether or not the provided value is traversed (and thus passed to the operator) by
+     * {@link #rewrite(Object, UnaryOperator)}.
+     * @param value the value to check
+     * @return true if the value is a loot record, list, map, or either
+     */
+    public static boolean isTraversed(@NotNull Object value) {
+        return (value instanceof Record && isLoot(value.getClass())) || value instanceof List<?> ||
+                value instanceof Map<?, ?> || value instanceof Either<?, ?>;
+    }
+
+    /**
+     * Estimates the shallow heap size of the provided value, in bytes, assuming compressed references. Lists and maps
+     * include their backing arrays, but not their elements.
+     * @param value the value to measure
+     * @return the estimated size
+     */
+    public static long shallowSize(@NotNull Object value) {
+        return switch (value) {
+            case Record record -> SHAPES.get(record.getClass()).size();
+            // Header, size, and reference to the backing array, plus the array itself
+            case List<?> list -> align(12 + 4 + 4) + align(16 + 4L * list.size());
+            // Header and references, plus a table and one node per entry
+            case Map<?, ?> map -> align(12 + 4 * 6) + align(16 + 4L * map.size() * 2) + map.size() * align(12 + 4 * 4);
+            default -> align(12 + 4);
+        };
+    }
+
+    private static boolean isLoot(@NotNull Class<?> type) {
+        return type.getPackageName().startsWith(PACKAGE);
+    }
+
+    private static Object rewriteNullable(Object value, @NotNull UnaryOperator<Object> operator, @NotNull Map<Object, Object> cache) {
+        return value == null ? null : rewrite(value, operator, cache);
+    }
+
+    private static @NotNull Object rebuild(@NotNull Record record, @NotNull UnaryOperator<Object> operator, @NotNull Map<Object, Object> cache) {
+        Shape shape = SHAPES.get(record.getClass());
+
+        Object[] values = new Object[shape.components().length];
+        boolean changed = false;
+
+        try {
+            for (int i = 0; i < values.length; i++) {
+                Object old = shape.components()[i].getAccessor().invoke(record);
+                values[i] = shape.components()[i].getType().isPrimitive() ? old : rewriteNullable(old, operator, cache);
+                changed |= values[i] != old;
+            }
+
+            return changed ? shape.constructor().newInstance(values) : record;
+        } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
+            throw new RuntimeException("Could not rebuild " + record.getClass().getName(), e);
+        }
+    }
+
+    private static @NotNull Object rebuild(@NotNull List<?> list, @NotNull UnaryOperator<Object> operator, @NotNull Map<Object, Object> cache) {
+        List<Object> values = new ArrayList<>(list.size());
+        boolean changed = false;
+
+        for (Object old : list) {
+            Object value = rewriteNullable(old, operator, cache);
+            values.add(value);
+            changed |= value != old;
+        }
+
+        return changed ? Collections.unmodifiableList(values) : list;
+    }
+
+    private static @NotNull Object rebuild(@NotNull Map<?, ?> map, @NotNull UnaryOperator<Object> operator, @NotNull Map<Object, Object> cache) {
+        Map<Object, Object> values = new LinkedHashMap<>();
+        boolean changed = false;
+
+        for (var entry : map.entrySet()) {
+            Object value = rewriteNullable(entry.getValue(), operator, cache);
+            values.put(entry.getKey(), value);
+            changed |= value != entry.getValue();
+        }
+
+        return changed ? Collections.unmodifiableMap(values) : map;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * The components and canonical constructor of a record class.
+     */
+    private record Shape(@NotNull RecordComponent @NotNull [] components, @NotNull Constructor<?> constructor, long size) {
+
+        static @NotNull Shape of(@NotNull Class<?> type) {
+            RecordComponent[] components = type.getRecordComponents();
+            Class<?>[] types = Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new);
+
+            long size = 12;
+            for (Class<?> component : types) {
+                size += component == long.class || component == double.class ? 8 :
+                        component == int.class || component == float.class ? 4 :
+                        component == short.class || component == char.class ? 2 :
+                        component == byte.class || component == boolean.class ? 1 : 4;
+            }
+
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor(types);
+                constructor.setAccessible(true);
+                for (RecordComponent component : components) {
+                    component.getAccessor().setAccessible(true);
+                }
+                return new Shape(components, constructor, align(size));
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
@@ -17,7 +17,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public interface VanillaInterface {
 
@@ -39,7 +39,7 @@ public interface VanillaInterface {
             }
 
             @Override
-            public @NotNull ItemStack enchant(@NotNull Random random, @NotNull ItemStack item, int levels, @Nullable RegistryTag<Enchantment> enchantments) {
+            public @NotNull ItemStack enchant(@NotNull RandomGenerator random, @NotNull ItemStack item, int levels, @Nullable RegistryTag<Enchantment> enchantments) {
                 return item;
             }
 
@@ -85,7 +85,7 @@ public interface VanillaInterface {
 
     @NotNull BinaryTag serializeEntity(@NotNull Entity entity);
 
-    @NotNull ItemStack enchant(@NotNull Random random, @NotNull ItemStack item, int levels, @Nullable RegistryTag<Enchantment> enchantments);
+    @NotNull ItemStack enchant(@NotNull RandomGenerator random, @NotNull ItemStack item, int levels, @Nullable RegistryTag<Enchantment> enchantments);
 
     @Nullable ItemStack smelt(@NotNull ItemStack input);
 
@@ -0,0 +1,162 @@
+package net.goldenstack.loot.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinomialSamplerTest {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void noTrials() {
+        RandomGenerator random = new SplittableRandom(1);
+        assertEquals(0, BinomialSampler.sample(random, 0, 0.5));
+        assertEquals(0, BinomialSampler.sample(random, -5, 0.5));
+    }
+
+    @Test
+    void certainOutcomes() {
+        RandomGenerator random = new SplittableRandom(2);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, BinomialSampler.sample(random, 1000, 0));
+            assertEquals(0, BinomialSampler.sample(random, 1000, -0.5));
+            assertEquals(0, BinomialSampler.sample(random, 1000, Double.NaN));
+            assertEquals(1000, BinomialSampler.sample(random, 1000, 1));
+            assertEquals(1000, BinomialSampler.sample(random, 1000, 1.5));
+        }
+    }
+
+    @Test
+    void inversion() {
+        // n * p = 6, well below the BTPE threshold
+        assertMatchesBinomial(20, 0.3, 3);
+        assertMatchesBinomial(1, 0.5, 4);
+    }
+
+    @Test
+    void inversionSymmetric() {
+        // Samples failures with probability 0.2 and flips them
+        assertMatchesBinomial(50, 0.8, 5);
+    }
+
+    @Test
+    void btpe() {
+        // n * p = 400, well above the BTPE threshold
+        assertMatchesBinomial(1000, 0.4, 6);
+        assertMatchesBinomial(100, 0.5, 7);
+    }
+
+    @Test
+    void btpeSymmetric() {
+        // Samples failures with probability 0.3 and flips them
+        assertMatchesBinomial(1000, 0.7, 8);
+    }
+
+    /**
+     * Samples the provided distribution many times, checking that every sample is in range, that the mean and variance
+     * are close to the expected ones, and that the counts pass a chi-square goodness-of-fit test against the exact
+     * probability mass function.
+     */
+    private static void assertMatchesBinomial(int n, double p, long seed) {
+        RandomGenerator random = new SplittableRandom(seed);
+
+        long[] counts = new long[n + 1];
+        double sum = 0, sumSquares = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            int x = BinomialSampler.sample(random, n, p);
+            assertTrue(x >= 0 && x <= n, () -> "sample " + x + " out of range for n=" + n);
+
+            counts[x]++;
+            sum += x;
+            sumSquares += (double) x * x;
+        }
+
+        double mean = sum / SAMPLES;
+        double variance = (sumSquares - sum * mean) / (SAMPLES - 1);
+
+        double expectedMean = n * p;
+        double expectedVariance = n * p * (1 - p);
+
+        // Five standard errors of each estimate
+        assertEquals(expectedMean, mean, 5 * Math.sqrt(expectedVariance / SAMPLES), "mean for n=" + n + ", p=" + p);
+        assertEquals(expectedVariance, variance, 5 * expectedVariance * Math.sqrt(2.0 / (SAMPLES - 1)) + 1e-9,
+                "variance for n=" + n + ", p=" + p);
+
+        assertChiSquare(counts, pmf(n, p), "n=" + n + ", p=" + p);
+    }
+
+    /**
+     * Runs a chi-square goodness-of-fit test at a significance level of 0.001, merging neighbouring outcomes until each
+     * bin expects at least five samples.
+     */
+    private static void assertChiSquare(long @NotNull [] counts, double @NotNull [] pmf, @NotNull String description) {
+        List<double[]> bins = new ArrayList<>();
+
+        double expected = 0, observed = 0;
+        for (int k = 0; k < pmf.length; k++) {
+            expected += pmf[k] * SAMPLES;
+            observed += counts[k];
+
+            if (expected >= 5) {
+                bins.add(new double[]{expected, observed});
+                expected = 0;
+                observed = 0;
+            }
+        }
+
+        // Fold whatever is left of the upper tail into the last bin
+        if (!bins.isEmpty()) {
+            bins.getLast()[0] += expected;
+            bins.getLast()[1] += observed;
+        }
+
+        int freedom = bins.size() - 1;
+        if (freedom < 1) return;
+
+        double statistic = 0;
+        for (double[] bin : bins) {
+            statistic += (bin[1] - bin[0]) * (bin[1] - bin[0]) / bin[0];
+        }
+
+        double result = statistic;
+        assertTrue(result < chiSquareCritical(freedom),
+                () -> "chi-square statistic " + result + " with " + freedom + " degrees of freedom for " + description);
+    }
+
+    /**
+     * Approximates the 99.9th percentile of the chi-square distribution with the provided degrees of freedom, using
+     * the Wilson-Hilferty transformation.
+     */
+    private static double chiSquareCritical(int freedom) {
+        double z = 3.090232;
+        double h = 2.0 / (9 * freedom);
+        double base = 1 - h + z * Math.sqrt(h);
+        return freedom * base * base * base;
+    }
+
+    /**
+     * Computes the exact probability mass function of the binomial distribution, in log space to avoid underflow.
+     */
+    private static double @NotNull [] pmf(int n, double p) {
+        double[] logFactorials = new double[n + 1];
+        for (int i = 1; i <= n; i++) {
+            logFactorials[i] = logFactorials[i - 1] + Math.log(i);
+        }
+
+        double[] pmf = new double[n + 1];
+        for (int k = 0; k <= n; k++) {
+            double log = logFactorials[n] - logFactorials[k] - logFactorials[n - k]
+                    + k * Math.log(p) + (n - k) * Math.log1p(-p);
+            pmf[k] = Math.exp(log);
+        }
+        return pmf;
+    }
+
+}